@@ -0,0 +1,168 @@
+package com.aki.rpc.benchmark;
+
+import com.aki.rpc.compress.Compress;
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.constant.SerializationTypeEnum;
+import com.aki.rpc.message.AkiMessage;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.netty.codec.AkiRpcDecoder;
+import com.aki.rpc.netty.codec.AkiRpcEncoder;
+import com.aki.rpc.netty.codec.CodecRegistry;
+import com.aki.rpc.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Auther akizora
+ * 编解码基准：每帧的序列化器/压缩器查找，以及完整的请求帧编码、解码耗时（ns/op）
+ * - *Registry：当前实现，按协议头字节从 CodecRegistry 数组下标取出预构建实例
+ * - *ServiceLoader：改造前的实现，每帧 ServiceLoader.load 扫描 META-INF/services 并按名称匹配
+ * encodeServiceLoader/decodeServiceLoader = 每帧两次 SPI 扫描 + 编解码，对应改造前每帧的开销
+ * 运行：mvn -pl aki-rpc-benchmark -am package -DskipTests && java -jar aki-rpc-benchmark/target/benchmarks.jar CodecBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+    // 请求参数的字符数：64 低于压缩阈值不压缩，4096 走 GZIP 压缩
+    @Param({"64", "4096"})
+    private int payloadSize;
+
+    private final byte codec = SerializationTypeEnum.PROTO_STUFF.getCode();
+    private final byte compress = CompressTypeEnum.GZIP.getCode();
+
+    private EmbeddedChannel encoderChannel;
+    private EmbeddedChannel decoderChannel;
+    private AkiRequest akiRequest;
+    private ByteBuf frame;
+
+    @Setup
+    public void setup() {
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'a');
+        akiRequest = AkiRequest.builder()
+                .interfaceName("com.aki.rpc.benchmark.GoodsService")
+                .methodName("findGoods")
+                .version("1.0")
+                .group("aki-rpc")
+                .paramTypes(new Class<?>[]{String.class})
+                .parameters(new Object[]{new String(chars)})
+                .build();
+        encoderChannel = new EmbeddedChannel(new AkiRpcEncoder());
+        decoderChannel = new EmbeddedChannel(new AkiRpcDecoder());
+        encoderChannel.writeOutbound(newMessage());
+        frame = encoderChannel.readOutbound();
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+        encoderChannel.finishAndReleaseAll();
+        decoderChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void lookupRegistry(Blackhole blackhole) {
+        blackhole.consume(CodecRegistry.getSerializer(codec));
+        blackhole.consume(CodecRegistry.getCompress(compress));
+    }
+
+    @Benchmark
+    public void lookupServiceLoader(Blackhole blackhole) {
+        blackhole.consume(loadSerializer(codec));
+        blackhole.consume(loadCompress(compress));
+    }
+
+    @Benchmark
+    public void encodeRegistry() {
+        encode();
+    }
+
+    @Benchmark
+    public void encodeServiceLoader(Blackhole blackhole) {
+        blackhole.consume(loadSerializer(codec));
+        blackhole.consume(loadCompress(compress));
+        encode();
+    }
+
+    @Benchmark
+    public Object decodeRegistry() {
+        return decode();
+    }
+
+    @Benchmark
+    public Object decodeServiceLoader(Blackhole blackhole) {
+        blackhole.consume(loadSerializer(codec));
+        blackhole.consume(loadCompress(compress));
+        return decode();
+    }
+
+    private void encode() {
+        encoderChannel.writeOutbound(newMessage());
+        ByteBuf encoded = encoderChannel.readOutbound();
+        encoded.release();
+    }
+
+    private Object decode() {
+        decoderChannel.writeInbound(frame.retainedDuplicate());
+        return decoderChannel.readInbound();
+    }
+
+    private AkiMessage newMessage() {
+        return AkiMessage.builder()
+                .messageType(MessageTypeEnum.REQUEST.getCode())
+                .codec(codec)
+                .compress(compress)
+                .requestId(1)
+                .data(akiRequest)
+                .build();
+    }
+
+    /**
+     * 改造前编解码器每帧的序列化器查找方式
+     */
+    private static Serializer loadSerializer(byte codec) {
+        String name = SerializationTypeEnum.getName(codec);
+        for (Serializer serializer : ServiceLoader.load(Serializer.class)) {
+            if (serializer.name().equals(name)) {
+                return serializer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 改造前编解码器每帧的压缩器查找方式
+     */
+    private static Compress loadCompress(byte compressType) {
+        String name = CompressTypeEnum.getName(compressType);
+        for (Compress compress : ServiceLoader.load(Compress.class)) {
+            if (compress.name().equals(name)) {
+                return compress;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,165 @@
+package com.aki.rpc.benchmark;
+
+import com.aki.rpc.annotation.AkiReference;
+import com.aki.rpc.annotation.AkiService;
+import com.aki.rpc.benchmark.echo.EchoService;
+import com.aki.rpc.benchmark.echo.EchoServiceImpl;
+import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.netty.client.NettyClient;
+import com.aki.rpc.proxy.AkiRpcClientProxy;
+import com.aki.rpc.server.AkiServiceProvider;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Auther akizora
+ * 合并flush基准：同一进程内启动服务端与客户端，单连接上保持固定数量的异步请求，对比开启与关闭 flushConsolidation 时
+ * - ops/s：每秒完成的调用数
+ * - 写系统调用/op：读取 /proc/self/io 的 syscw（write/writev 等写系统调用计数，含服务端与客户端），除以调用数
+ * 每个 flushConsolidation 取值在独立的 JVM 中运行，避免连接、单例与 JIT 状态互相影响；/proc/self/io 只在 Linux 上可用
+ * 运行：mvn -pl aki-rpc-benchmark -am package -DskipTests && java -cp aki-rpc-benchmark/target/benchmarks.jar com.aki.rpc.benchmark.FlushConsolidationBenchmark
+ * 参数：-fc 0,256（要对比的取值） -c 256（单连接上的并发请求数） -n 100000（每轮调用数） -w 3（预热轮数） -r 5（测量轮数）
+ */
+public class FlushConsolidationBenchmark {
+
+    private static final Path PROC_IO = Paths.get("/proc/self/io");
+
+    @AkiReference(compress = CompressTypeEnum.NONE, timeout = 30000)
+    private EchoService echoService;
+
+    public static void main(String[] args) throws Exception {
+        String flushConsolidations = "0,256";
+        int concurrency = 256;
+        int calls = 100000;
+        int warmups = 3;
+        int rounds = 5;
+        int forked = -1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-fc": flushConsolidations = args[i + 1]; break;
+                case "-c": concurrency = Integer.parseInt(args[i + 1]); break;
+                case "-n": calls = Integer.parseInt(args[i + 1]); break;
+                case "-w": warmups = Integer.parseInt(args[i + 1]); break;
+                case "-r": rounds = Integer.parseInt(args[i + 1]); break;
+                case "--fork": forked = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+        if (forked >= 0) {
+            run(forked, concurrency, calls, warmups, rounds);
+            System.exit(0);
+        }
+
+        // 每个取值启动一个子进程，输出直接打印到当前控制台
+        System.out.printf("%-20s %12s %18s%n", "flushConsolidation", "ops/s", "write syscalls/op");
+        for (String value : flushConsolidations.split(",")) {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(FlushConsolidationBenchmark.class.getName());
+            command.add("--fork");
+            command.add(value.trim());
+            command.add("-c");
+            command.add(String.valueOf(concurrency));
+            command.add("-n");
+            command.add(String.valueOf(calls));
+            command.add("-w");
+            command.add(String.valueOf(warmups));
+            command.add("-r");
+            command.add(String.valueOf(rounds));
+            Process process = new ProcessBuilder(command).inheritIO().redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException("flushConsolidation=" + value + " 的子进程异常退出: " + process.exitValue());
+            }
+        }
+    }
+
+    /**
+     * 子进程：启动服务端与客户端，预热后逐轮测量
+     */
+    private static void run(int flushConsolidation, int concurrency, int calls, int warmups, int rounds) throws Exception {
+        // 1.替换注册中心，服务端与客户端共用同一份配置，两端同时开启或关闭合并flush
+        LocalRegistry.install();
+        AkiRpcConfig akiRpcConfig = new AkiRpcConfig();
+        akiRpcConfig.setProviderPort(freePort());
+        akiRpcConfig.setConnections(1);
+        akiRpcConfig.setFlushConsolidation(flushConsolidation);
+
+        // 2.发布回显服务，启动服务端
+        AkiServiceProvider akiServiceProvider = SingletonFactory.getInstance(AkiServiceProvider.class);
+        akiServiceProvider.setAkiRpcConfig(akiRpcConfig);
+        EchoServiceImpl service = new EchoServiceImpl();
+        akiServiceProvider.publishService(EchoServiceImpl.class.getAnnotation(AkiService.class), service);
+
+        // 3.创建客户端代理
+        NettyClient nettyClient = SingletonFactory.getInstance(NettyClient.class);
+        nettyClient.setAkiRpcConfig(akiRpcConfig);
+        AkiReference akiReference = FlushConsolidationBenchmark.class.getDeclaredField("echoService").getAnnotation(AkiReference.class);
+        EchoService echoService = new AkiRpcClientProxy(akiReference, nettyClient).getProxy(EchoService.class);
+        echoService.echo("warm").get(30, TimeUnit.SECONDS);
+
+        // 4.预热
+        for (int i = 0; i < warmups; i++) {
+            round(echoService, concurrency, calls);
+        }
+
+        // 5.测量：各轮的调用数与写系统调用数累加后计算
+        long totalNanos = 0;
+        long totalWrites = 0;
+        boolean procIo = Files.isReadable(PROC_IO);
+        for (int i = 0; i < rounds; i++) {
+            long writes = procIo ? writeSyscalls() : 0;
+            long start = System.nanoTime();
+            round(echoService, concurrency, calls);
+            totalNanos += System.nanoTime() - start;
+            totalWrites += procIo ? writeSyscalls() - writes : 0;
+        }
+        long totalCalls = (long) calls * rounds;
+        double opsPerSecond = totalCalls / (totalNanos / 1e9);
+        String writesPerOp = procIo ? String.format("%.3f", (double) totalWrites / totalCalls) : "n/a";
+        System.out.printf("%-20d %12.0f %18s%n", flushConsolidation, opsPerSecond, writesPerOp);
+    }
+
+    /**
+     * 一轮调用：始终保持 concurrency 个请求在途，全部完成后返回
+     */
+    private static void round(EchoService echoService, int concurrency, int calls) throws Exception {
+        Semaphore inflight = new Semaphore(concurrency);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[calls];
+        for (int i = 0; i < calls; i++) {
+            inflight.acquire();
+            futures[i] = echoService.echo("ping").whenComplete((value, throwable) -> inflight.release());
+        }
+        CompletableFuture.allOf(futures).get(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 当前进程累计的写系统调用次数
+     */
+    private static long writeSyscalls() throws IOException {
+        for (String line : Files.readAllLines(PROC_IO)) {
+            if (line.startsWith("syscw:")) {
+                return Long.parseLong(line.substring("syscw:".length()).trim());
+            }
+        }
+        throw new IOException("/proc/self/io 中没有 syscw");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.aki.rpc.benchmark;
+
+import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.register.nacos.NacosTemplate;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @Auther akizora
+ * 进程内的注册中心，替代 Nacos 使服务端与客户端在同一进程内互相发现，基准测试不依赖外部的 Nacos
+ * 必须在 AkiServiceProvider、NettyClient 等单例创建之前调用 install
+ */
+public class LocalRegistry extends NacosTemplate {
+
+    private final Map<String, List<Instance>> services = new ConcurrentHashMap<>();
+
+    /**
+     * 以本注册中心替换 SingletonFactory 中的 NacosTemplate 单例
+     */
+    @SuppressWarnings("unchecked")
+    public static void install() throws ReflectiveOperationException {
+        Field field = SingletonFactory.class.getDeclaredField("OBJECT_MAP");
+        field.setAccessible(true);
+        ((Map<String, Object>) field.get(null)).put(NacosTemplate.class.toString(), new LocalRegistry());
+    }
+
+    @Override
+    public void registerServer(String groupName, Instance instance) {
+        // 进程内访问走回环地址
+        instance.setIp("127.0.0.1");
+        services.computeIfAbsent(groupName + "@@" + instance.getServiceName(), k -> new CopyOnWriteArrayList<>()).add(instance);
+    }
+
+    @Override
+    public List<Instance> selectInstances(String groupName, String serverName, boolean healthy) {
+        return new ArrayList<>(services.getOrDefault(groupName + "@@" + serverName, new ArrayList<>()));
+    }
+
+    @Override
+    public void subscribe(String groupName, String serverName, EventListener listener) {
+        // 服务在客户端访问前已全部发布，不会再变化
+    }
+}
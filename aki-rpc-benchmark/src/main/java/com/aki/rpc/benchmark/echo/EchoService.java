@@ -0,0 +1,12 @@
+package com.aki.rpc.benchmark.echo;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Auther akizora
+ * 基准测试用的回显服务
+ */
+public interface EchoService {
+
+    CompletableFuture<String> echo(String message);
+}
@@ -0,0 +1,19 @@
+package com.aki.rpc.benchmark.echo;
+
+import com.aki.rpc.annotation.AkiService;
+import com.aki.rpc.constant.CompressTypeEnum;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @Auther akizora
+ * 立即返回，测得的是框架与网络本身的开销
+ */
+@AkiService(compress = CompressTypeEnum.NONE)
+public class EchoServiceImpl implements EchoService {
+
+    @Override
+    public CompletableFuture<String> echo(String message) {
+        return CompletableFuture.completedFuture(message);
+    }
+}
@@ -1,5 +1,8 @@
 package com.aki.rpc.annotation;
 
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.CompressTypeEnum;
+
 import java.lang.annotation.*;
 
 //
@@ -11,4 +14,27 @@ public @interface AkiReference {
 //    String host();                                 // 动态获取相关服务地址/端口
 //    int port();
     String version() default "1.0";
+
+    // 请求消息体的压缩类型，消息体低于压缩阈值时不压缩
+    CompressTypeEnum compress() default CompressTypeEnum.GZIP;
+
+    // 调用超时时间（毫秒），小于等于0时使用 @EnableRpc 中的全局超时时间
+    long timeout() default 0;
+
+    // 负载均衡策略：random（按权重随机）、roundrobin（平滑加权轮询）、leastactive（最少活跃调用）、p2c（延迟感知的二选一）、consistenthash（一致性哈希）
+    // 也可填写通过SPI扩展的 LoadBalancer 名称
+    String loadBalance() default "random";
+
+    // 一致性哈希（consistenthash）时参与哈希的参数下标，格式为 "方法名:参数下标"，如 {"findGoods:0"}
+    // 未配置的方法默认取第 0 个参数
+    String[] hashArguments() default {};
+
+    // 服务端返回过载（503，请求未被执行）时换其他实例重试的次数，已尝试过的实例不再选择
+    int retries() default 2;
+
+    // 流式调用（返回 Stream/Iterator/Flow.Publisher）的信用窗口，即客户端最多缓存的未消费元素数
+    int streamWindow() default AkiRpcConstants.STREAM_WINDOW;
+
+    // 该引用的访问日志采样率 0~1，小于0时使用 @EnableRpc.accessLogSampleRate
+    double accessLogSampleRate() default -1;
 }
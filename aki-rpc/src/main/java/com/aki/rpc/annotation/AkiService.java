@@ -1,5 +1,8 @@
 package com.aki.rpc.annotation;
 
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.CompressTypeEnum;
+
 import java.lang.annotation.*;
 
 //@AkiService来标识需要发布的服务
@@ -9,4 +12,17 @@ import java.lang.annotation.*;
 @Target({ElementType.TYPE})          // 注解在运行时依然有效，可通过反射访问。
 public @interface AkiService {
     String version() default "1.0";
+
+    // 响应消息体的压缩类型，消息体低于压缩阈值时不压缩
+    CompressTypeEnum compress() default CompressTypeEnum.GZIP;
+
+    // 该服务独立的业务线程数（舱壁隔离），大于0时不再与其他服务共用服务端业务执行器
+    // 虚拟线程模式下表示该服务同时执行的最大请求数
+    int threads() default 0;
+
+    // 独立线程池的排队上限，线程全忙且队列已满时请求被快速拒绝，仅在 threads 大于0时生效
+    int queueSize() default AkiRpcConstants.BULKHEAD_QUEUE_SIZE;
+
+    // 该服务的访问日志采样率 0~1，小于0时使用 @EnableRpc.accessLogSampleRate
+    double accessLogSampleRate() default -1;
 }
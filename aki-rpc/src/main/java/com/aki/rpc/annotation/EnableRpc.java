@@ -1,5 +1,7 @@
 package com.aki.rpc.annotation;
 
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.TransportTypeEnum;
 import com.aki.rpc.spring.AkiRpcSpringBeanPostProcessor;
 import org.springframework.context.annotation.Import;
 import java.lang.annotation.*;
@@ -20,4 +22,72 @@ public @interface EnableRpc {
 
     //server服务端口
     int serverPort() default 0;
-}
\ No newline at end of file
+
+    //压缩阈值（字节），序列化后小于该值的消息体不压缩
+    int compressThreshold() default AkiRpcConstants.COMPRESS_THRESHOLD;
+
+    //zstd预训练字典的classpath路径，为空则不使用字典，收发两端须一致
+    String zstdDictionary() default "";
+
+    //全局调用超时时间（毫秒），@AkiReference 未指定时生效
+    long timeout() default AkiRpcConstants.REQUEST_TIMEOUT;
+
+    //异步调用（返回 CompletableFuture 的方法）回调线程数，小于等于0时取CPU核心数
+    //响应在IO线程解码后转交该线程池完成 future，业务回调不会占用IO线程
+    int callbackThreads() default 0;
+
+    //客户端到每个服务提供方地址的连接数，请求分摊到等待响应最少的连接上
+    int connections() default 1;
+
+    //服务端以虚拟线程执行业务方法（每个请求一个虚拟线程，需JDK 21+），当前JDK不支持时退回平台线程池
+    //适用于大量阻塞型服务实现（JDBC、远程HTTP等）
+    boolean virtualThreads() default false;
+
+    //平台线程模式下的服务端业务线程数，小于等于0时取CPU核心数*2
+    int serverThreads() default 0;
+
+    //虚拟线程模式下同时执行的最大请求数，超出的请求排队等待，小于等于0时不限制
+    int maxConcurrency() default 0;
+
+    //服务端自适应并发限制：按调用耗时动态调整可同时处理的请求数，超出时返回过载响应，客户端换实例重试
+    boolean adaptiveLimit() default false;
+
+    //合并flush：客户端与服务端连接上每累计N次flush才真正刷出一次，其余在当前事件循环任务结束时统一刷出
+    //高并发下将多条消息合并为一次系统调用写出，小于等于0时关闭（每条消息各自刷出）
+    int flushConsolidation() default 0;
+
+    //传输层实现：AUTO（Linux 上 epoll 可用时使用 epoll）、EPOLL、NIO，epoll 不可用时均退回 NIO
+    TransportTypeEnum transport() default TransportTypeEnum.AUTO;
+
+    //服务端接收连接的线程数，epoll 下大于1时以 SO_REUSEPORT 在同一端口绑定多个监听，由内核分摊新连接
+    int acceptors() default 1;
+
+    //IO线程数（服务端 worker 组与客户端事件循环组），小于等于0时取 Netty 默认值（CPU核心数*2）
+    int ioThreads() default 0;
+
+    //服务端监听队列长度（SO_BACKLOG），实际上限受内核 somaxconn 限制
+    int backlog() default AkiRpcConstants.BACKLOG;
+
+    //连接的内核接收/发送缓冲区大小（SO_RCVBUF/SO_SNDBUF，字节），小于等于0时使用系统默认值
+    int receiveBufferSize() default 0;
+    int sendBufferSize() default 0;
+
+    //连接写缓冲区低/高水位（字节），待写出数据超过高水位时连接不可写
+    int writeBufferLowWaterMark() default AkiRpcConstants.WRITE_BUFFER_LOW_WATER_MARK;
+    int writeBufferHighWaterMark() default AkiRpcConstants.WRITE_BUFFER_HIGH_WATER_MARK;
+
+    //是否使用池化的 ByteBuf 分配器，关闭后每次分配新的缓冲区（内存占用低，分配开销高）
+    boolean pooledAllocator() default true;
+
+    //客户端单连接等待响应的最大请求数（进行中的流式调用各占一个），小于等于0时不限制（仍受写缓冲区高水位约束）
+    int maxPendingRequests() default 0;
+
+    //连接写缓冲区超过高水位或积压达到上限时：true 立即失败；false 在调用超时时间内等待连接恢复
+    boolean backpressureFailFast() default false;
+
+    //RPC访问日志（异步写入名为 aki-rpc-access 的 logger），默认关闭
+    boolean accessLog() default false;
+
+    //访问日志全局采样率 0~1，@AkiService/@AkiReference 可按服务覆盖
+    double accessLogSampleRate() default 1.0;
+}
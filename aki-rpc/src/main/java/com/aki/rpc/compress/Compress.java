@@ -1,5 +1,7 @@
 package com.aki.rpc.compress;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * @Auther akizora
  * 压缩类接口
@@ -17,10 +19,34 @@ public interface Compress {
      */
     byte[] compress(byte[] bytes);
 
+    /**
+     * 压缩：读取 in 中全部可读字节，压缩结果直接写入 out
+     * 默认实现退化为 byte[] 拷贝，具体实现类可按需重写
+     * @param in
+     * @param out
+     */
+    default void compress(ByteBuf in, ByteBuf out) {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        out.writeBytes(compress(bytes));
+    }
+
     /**
      * 解压缩
      * @param bytes
      * @return
      */
     byte[] decompress(byte[] bytes);
+
+    /**
+     * 解压缩：读取 in 中全部可读字节，解压结果直接写入 out
+     * 默认实现退化为 byte[] 拷贝，具体实现类可按需重写
+     * @param in
+     * @param out
+     */
+    default void decompress(ByteBuf in, ByteBuf out) {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        out.writeBytes(decompress(bytes));
+    }
 }
@@ -2,6 +2,9 @@ package com.aki.rpc.compress;
 
 import com.aki.rpc.constant.CompressTypeEnum;
 import com.aki.rpc.exception.AkiRpcException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -39,6 +42,17 @@ public class GzipCompress implements Compress {
         }
     }
 
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        // 压缩流直接写入出站缓冲区，关闭时释放 Deflater 的本地内存
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new ByteBufOutputStream(out), 1024 * 4)) {
+            in.readBytes(gzip, in.readableBytes());
+            gzip.finish();
+        } catch (IOException e) {
+            throw new AkiRpcException("压缩数据出错",e);
+        }
+    }
+
     @Override
     public byte[] decompress(byte[] bytes) {
         if (bytes == null){
@@ -57,4 +71,16 @@ public class GzipCompress implements Compress {
             throw new AkiRpcException("解压缩数据出错",e);
         }
     }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        // 直接从入站帧读取并解压至目标缓冲区，不再经过 ByteArrayOutputStream
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteBufInputStream(in), 1024 * 4)) {
+            while (out.writeBytes(gzip, 1024 * 4) > -1) {
+                // 读至流结束
+            }
+        } catch (IOException e) {
+            throw new AkiRpcException("解压缩数据出错",e);
+        }
+    }
 }
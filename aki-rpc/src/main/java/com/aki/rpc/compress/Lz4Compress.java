@@ -0,0 +1,141 @@
+package com.aki.rpc.compress;
+
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.exception.AkiRpcException;
+import io.netty.buffer.ByteBuf;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @Auther akizora
+ * LZ4 块压缩工具类
+ * 数据格式：4B 原始长度 + LZ4 压缩块
+ * LZ4Factory 产出的压缩器/解压器均为无状态、线程安全的对象，全局共享一份即可，无需每次调用重新创建
+ */
+public class Lz4Compress implements Compress {
+
+    // 优先使用JNI实现，不可用时回退至 Unsafe / 纯Java实现
+    private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+    private static final LZ4Compressor COMPRESSOR = FACTORY.fastCompressor();
+    private static final LZ4SafeDecompressor DECOMPRESSOR = FACTORY.safeDecompressor();
+
+    // 原始长度前缀字节数
+    private static final int LENGTH_PREFIX = 4;
+
+    @Override
+    public String name() {
+        return CompressTypeEnum.LZ4.getName();
+    }
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        if (bytes == null){
+            throw new NullPointerException("传入的压缩数据为null");
+        }
+        int maxLength = COMPRESSOR.maxCompressedLength(bytes.length);
+        byte[] dest = new byte[LENGTH_PREFIX + maxLength];
+        writeLength(dest, bytes.length);
+        int n = COMPRESSOR.compress(bytes, 0, bytes.length, dest, LENGTH_PREFIX, maxLength);
+        byte[] result = new byte[LENGTH_PREFIX + n];
+        System.arraycopy(dest, 0, result, 0, result.length);
+        return result;
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes) {
+        if (bytes == null){
+            throw new NullPointerException("传入的解压缩数据为null");
+        }
+        int length = readLength(bytes);
+        byte[] dest = new byte[length];
+        try {
+            int n = DECOMPRESSOR.decompress(bytes, LENGTH_PREFIX, bytes.length - LENGTH_PREFIX, dest, 0, length);
+            checkDecompressed(n, length);
+        } catch (LZ4Exception e) {
+            throw new AkiRpcException("解压缩数据出错", e);
+        }
+        return dest;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        if (in.nioBufferCount() != 1 || out.nioBufferCount() != 1) {
+            Compress.super.compress(in, out);
+            return;
+        }
+        // 直接在两端缓冲区的内存上压缩（堆内/堆外均可），不产生中间数组
+        int srcLength = in.readableBytes();
+        int maxLength = COMPRESSOR.maxCompressedLength(srcLength);
+        out.ensureWritable(LENGTH_PREFIX + maxLength);
+        out.writeInt(srcLength);
+        ByteBuffer src = in.nioBuffer();
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxLength);
+        int n = COMPRESSOR.compress(src, src.position(), srcLength, dest, dest.position(), maxLength);
+        out.writerIndex(out.writerIndex() + n);
+        in.skipBytes(srcLength);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        if (in.nioBufferCount() != 1 || out.nioBufferCount() != 1) {
+            Compress.super.decompress(in, out);
+            return;
+        }
+        int length = checkLength(in.readInt());
+        out.ensureWritable(length);
+        int srcLength = in.readableBytes();
+        ByteBuffer src = in.nioBuffer();
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), length);
+        try {
+            int n = DECOMPRESSOR.decompress(src, src.position(), srcLength, dest, dest.position(), length);
+            checkDecompressed(n, length);
+            out.writerIndex(out.writerIndex() + n);
+        } catch (LZ4Exception e) {
+            throw new AkiRpcException("解压缩数据出错", e);
+        }
+        in.skipBytes(srcLength);
+    }
+
+    private static void writeLength(byte[] dest, int length) {
+        dest[0] = (byte) (length >>> 24);
+        dest[1] = (byte) (length >>> 16);
+        dest[2] = (byte) (length >>> 8);
+        dest[3] = (byte) length;
+    }
+
+    private static int readLength(byte[] src) {
+        if (src.length < LENGTH_PREFIX) {
+            throw new AkiRpcException("解压缩数据出错");
+        }
+        return checkLength((src[0] & 0xFF) << 24 | (src[1] & 0xFF) << 16 | (src[2] & 0xFF) << 8 | (src[3] & 0xFF));
+    }
+
+    /**
+     * 校验原始长度前缀，须在按该长度申请内存之前调用
+     * 长度由对端写入，不可信任，超过单帧上限的一律拒绝
+     * @param length
+     * @return
+     */
+    private static int checkLength(int length) {
+        if (length < 0 || length > AkiRpcConstants.MAX_FRAME_LENGTH) {
+            throw new AkiRpcException("解压缩数据出错：原始长度非法 " + length);
+        }
+        return length;
+    }
+
+    /**
+     * 实际解压出的字节数必须与长度前缀一致
+     * @param n
+     * @param length
+     */
+    private static void checkDecompressed(int n, int length) {
+        if (n != length) {
+            throw new AkiRpcException("解压缩数据出错：解压长度 " + n + " 与原始长度 " + length + " 不符");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.aki.rpc.compress;
+
+import com.aki.rpc.constant.CompressTypeEnum;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * @Auther akizora
+ * 空压缩实现，原样返回数据
+ * 编解码器遇到 NONE 类型时会直接跳过压缩环节，此实现用于保持注册表与SPI的完整
+ */
+public class NoneCompress implements Compress {
+
+    @Override
+    public String name() {
+        return CompressTypeEnum.NONE.getName();
+    }
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        if (bytes == null){
+            throw new NullPointerException("传入的压缩数据为null");
+        }
+        return bytes;
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes) {
+        if (bytes == null){
+            throw new NullPointerException("传入的解压缩数据为null");
+        }
+        return bytes;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        out.writeBytes(in);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        out.writeBytes(in);
+    }
+}
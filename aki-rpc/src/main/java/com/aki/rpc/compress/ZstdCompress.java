@@ -0,0 +1,227 @@
+package com.aki.rpc.compress;
+
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.exception.AkiRpcException;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @Auther akizora
+ * Zstandard 压缩工具类
+ * 数据格式：4B 原始长度 + zstd 帧
+ * 压缩/解压上下文持有本地内存且非线程安全，按线程缓存复用，避免每次调用重新申请
+ * 支持可选的预训练字典，字典需在收发两端保持一致
+ */
+public class ZstdCompress implements Compress {
+
+    // 压缩等级，3 为 zstd 默认等级，兼顾速度与压缩率
+    private static final int LEVEL = 3;
+
+    // 原始长度前缀字节数
+    private static final int LENGTH_PREFIX = 4;
+
+    // 当前生效的字典，替换后各线程在下次使用时重建上下文
+    private static volatile Dictionary dictionary = new Dictionary(0, null, null);
+
+    // 线程级上下文缓存
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
+
+    @Override
+    public String name() {
+        return CompressTypeEnum.ZSTD.getName();
+    }
+
+    /**
+     * 加载预训练字典，传入 null 则取消字典
+     * @param dict
+     */
+    public static synchronized void loadDictionary(byte[] dict) {
+        Dictionary current = dictionary;
+        dictionary = dict == null
+                ? new Dictionary(current.version + 1, null, null)
+                : new Dictionary(current.version + 1, new ZstdDictCompress(dict, LEVEL), new ZstdDictDecompress(dict));
+    }
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        if (bytes == null){
+            throw new NullPointerException("传入的压缩数据为null");
+        }
+        int maxLength = (int) Zstd.compressBound(bytes.length);
+        byte[] dest = new byte[LENGTH_PREFIX + maxLength];
+        writeLength(dest, bytes.length);
+        try {
+            int n = context().compressCtx.compressByteArray(dest, LENGTH_PREFIX, maxLength, bytes, 0, bytes.length);
+            byte[] result = new byte[LENGTH_PREFIX + n];
+            System.arraycopy(dest, 0, result, 0, result.length);
+            return result;
+        } catch (ZstdException e) {
+            throw new AkiRpcException("压缩数据出错", e);
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes) {
+        if (bytes == null){
+            throw new NullPointerException("传入的解压缩数据为null");
+        }
+        int length = readLength(bytes);
+        byte[] dest = new byte[length];
+        try {
+            int n = context().decompressCtx.decompressByteArray(dest, 0, length, bytes, LENGTH_PREFIX, bytes.length - LENGTH_PREFIX);
+            checkDecompressed(n, length);
+        } catch (ZstdException e) {
+            throw new AkiRpcException("解压缩数据出错", e);
+        }
+        return dest;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        // JNI 直接内存接口要求两端均为单段堆外缓冲区，否则回退至数组拷贝
+        if (!isDirect(in) || !isDirect(out)) {
+            Compress.super.compress(in, out);
+            return;
+        }
+        int srcLength = in.readableBytes();
+        int maxLength = (int) Zstd.compressBound(srcLength);
+        out.ensureWritable(LENGTH_PREFIX + maxLength);
+        out.writeInt(srcLength);
+        ByteBuffer src = in.nioBuffer();
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxLength);
+        try {
+            int n = context().compressCtx.compressDirectByteBuffer(dest, dest.position(), maxLength, src, src.position(), srcLength);
+            out.writerIndex(out.writerIndex() + n);
+        } catch (ZstdException e) {
+            throw new AkiRpcException("压缩数据出错", e);
+        }
+        in.skipBytes(srcLength);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        if (!isDirect(in) || !isDirect(out)) {
+            Compress.super.decompress(in, out);
+            return;
+        }
+        int length = checkLength(in.readInt());
+        out.ensureWritable(length);
+        int srcLength = in.readableBytes();
+        ByteBuffer src = in.nioBuffer();
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), length);
+        try {
+            int n = context().decompressCtx.decompressDirectByteBuffer(dest, dest.position(), length, src, src.position(), srcLength);
+            checkDecompressed(n, length);
+            out.writerIndex(out.writerIndex() + n);
+        } catch (ZstdException e) {
+            throw new AkiRpcException("解压缩数据出错", e);
+        }
+        in.skipBytes(srcLength);
+    }
+
+    /**
+     * 获取当前线程的上下文，字典变更后重建
+     * @return
+     */
+    private static Context context() {
+        Dictionary dict = dictionary;
+        Context context = CONTEXT.get();
+        if (context == null || context.version != dict.version) {
+            if (context != null) {
+                context.close();
+            }
+            context = new Context(dict);
+            CONTEXT.set(context);
+        }
+        return context;
+    }
+
+    private static boolean isDirect(ByteBuf buf) {
+        return buf.isDirect() && buf.nioBufferCount() == 1;
+    }
+
+    private static void writeLength(byte[] dest, int length) {
+        dest[0] = (byte) (length >>> 24);
+        dest[1] = (byte) (length >>> 16);
+        dest[2] = (byte) (length >>> 8);
+        dest[3] = (byte) length;
+    }
+
+    private static int readLength(byte[] src) {
+        if (src.length < LENGTH_PREFIX) {
+            throw new AkiRpcException("解压缩数据出错");
+        }
+        return checkLength((src[0] & 0xFF) << 24 | (src[1] & 0xFF) << 16 | (src[2] & 0xFF) << 8 | (src[3] & 0xFF));
+    }
+
+    /**
+     * 校验原始长度前缀，须在按该长度申请内存之前调用
+     * 长度由对端写入，不可信任，超过单帧上限的一律拒绝
+     * @param length
+     * @return
+     */
+    private static int checkLength(int length) {
+        if (length < 0 || length > AkiRpcConstants.MAX_FRAME_LENGTH) {
+            throw new AkiRpcException("解压缩数据出错：原始长度非法 " + length);
+        }
+        return length;
+    }
+
+    /**
+     * 实际解压出的字节数必须与长度前缀一致
+     * @param n
+     * @param length
+     */
+    private static void checkDecompressed(int n, int length) {
+        if (n != length) {
+            throw new AkiRpcException("解压缩数据出错：解压长度 " + n + " 与原始长度 " + length + " 不符");
+        }
+    }
+
+    /**
+     * 字典快照，版本号用于通知各线程重建上下文
+     */
+    private static final class Dictionary {
+        private final int version;
+        private final ZstdDictCompress compressDict;
+        private final ZstdDictDecompress decompressDict;
+
+        private Dictionary(int version, ZstdDictCompress compressDict, ZstdDictDecompress decompressDict) {
+            this.version = version;
+            this.compressDict = compressDict;
+            this.decompressDict = decompressDict;
+        }
+    }
+
+    /**
+     * 线程级的压缩/解压上下文
+     */
+    private static final class Context {
+        private final int version;
+        private final ZstdCompressCtx compressCtx;
+        private final ZstdDecompressCtx decompressCtx;
+
+        private Context(Dictionary dict) {
+            this.version = dict.version;
+            this.compressCtx = new ZstdCompressCtx().setLevel(LEVEL);
+            this.decompressCtx = new ZstdDecompressCtx();
+            if (dict.compressDict != null) {
+                compressCtx.loadDict(dict.compressDict);
+                decompressCtx.loadDict(dict.decompressDict);
+            }
+        }
+
+        private void close() {
+            compressCtx.close();
+            decompressCtx.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.aki.rpc.config;
+
+import com.aki.rpc.annotation.AkiReference;
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.constant.LoadBalanceTypeEnum;
+import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.loadbalance.LoadBalancerRegistry;
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 服务引用方（@AkiReference）相关配置类，每个代理对象持有一份
+@Data
+public class AkiReferenceConfig {
+
+    private String version = "1.0";
+
+    // 请求消息体的压缩类型
+    private byte compress = CompressTypeEnum.GZIP.getCode();
+
+    // 调用超时时间（毫秒），小于等于0表示使用全局超时时间
+    private long timeout;
+
+    // 负载均衡策略名称
+    private String loadBalance = LoadBalanceTypeEnum.RANDOM.getName();
+
+    // 一致性哈希时 方法名 -> 参与哈希的参数下标
+    private Map<String, Integer> hashArguments = new HashMap<>();
+
+    // 服务端过载拒绝时换实例重试的次数
+    private int retries = 2;
+
+    // 流式调用的信用窗口（元素数）
+    private int streamWindow = AkiRpcConstants.STREAM_WINDOW;
+
+    // 访问日志采样率，小于0时使用全局采样率
+    private double accessLogSampleRate = -1;
+
+    /**
+     * 读取 @AkiReference 注解构建配置
+     * @param akiReference
+     * @return
+     */
+    public static AkiReferenceConfig from(AkiReference akiReference) {
+        AkiReferenceConfig config = new AkiReferenceConfig();
+        config.setVersion(akiReference.version());
+        config.setCompress(akiReference.compress().getCode());
+        config.setTimeout(akiReference.timeout());
+        config.setRetries(Math.max(0, akiReference.retries()));
+        config.setStreamWindow(Math.max(1, akiReference.streamWindow()));
+        config.setAccessLogSampleRate(akiReference.accessLogSampleRate());
+        // 提前校验策略是否存在，配置错误在启动挂载代理时即暴露
+        config.setLoadBalance(LoadBalancerRegistry.get(akiReference.loadBalance()).name());
+        for (String hashArgument : akiReference.hashArguments()) {
+            int split = hashArgument.lastIndexOf(':');
+            if (split <= 0) {
+                throw new AkiRpcException("hashArguments 格式应为 方法名:参数下标，实际为:" + hashArgument);
+            }
+            int index;
+            try {
+                index = Integer.parseInt(hashArgument.substring(split + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new AkiRpcException("hashArguments 的参数下标应为非负整数，实际为:" + hashArgument, e);
+            }
+            if (index < 0) {
+                throw new AkiRpcException("hashArguments 的参数下标应为非负整数，实际为:" + hashArgument);
+            }
+            config.getHashArguments().put(hashArgument.substring(0, split).trim(), index);
+        }
+        return config;
+    }
+
+    /**
+     * 获取方法参与一致性哈希的参数下标，未配置时为 0
+     * @param methodName
+     * @return
+     */
+    public int getHashArgument(String methodName) {
+        return hashArguments.getOrDefault(methodName, 0);
+    }
+}
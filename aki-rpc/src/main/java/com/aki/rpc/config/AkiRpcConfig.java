@@ -1,5 +1,7 @@
 package com.aki.rpc.config;
 
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.TransportTypeEnum;
 import lombok.Data;
 // Aki-Rpc服务单例部署/集群部署相关配置类
 @Data
@@ -12,4 +14,69 @@ public class AkiRpcConfig {
     private int providerPort = 0;
 
     private String nacosGroup = "aki-rpc";
+
+    // 压缩阈值，body 小于该字节数时不压缩
+    private int compressThreshold = AkiRpcConstants.COMPRESS_THRESHOLD;
+
+    // zstd预训练字典的classpath路径，为空则不使用字典
+    private String zstdDictionary = "";
+
+    // 全局调用超时时间（毫秒）
+    private long timeout = AkiRpcConstants.REQUEST_TIMEOUT;
+
+    // 异步调用回调线程数，小于等于0时取CPU核心数
+    private int callbackThreads = 0;
+
+    // 客户端到每个服务提供方地址的连接数
+    private int connections = 1;
+
+    // 服务端是否以虚拟线程执行业务方法（JDK 21+），不支持时退回平台线程池
+    private boolean virtualThreads = false;
+
+    // 平台线程模式下的业务线程数，小于等于0时取CPU核心数*2
+    private int serverThreads = 0;
+
+    // 虚拟线程模式下同时执行的最大请求数，小于等于0时不限制
+    private int maxConcurrency = 0;
+
+    // 服务端是否开启自适应并发限制
+    private boolean adaptiveLimit = false;
+
+    // 合并flush的次数阈值，小于等于0时关闭
+    private int flushConsolidation = 0;
+
+    // 传输层实现
+    private TransportTypeEnum transport = TransportTypeEnum.AUTO;
+
+    // 服务端接收连接的线程数（epoll 下以 SO_REUSEPORT 多次绑定）
+    private int acceptors = 1;
+
+    // IO线程数，小于等于0时取 Netty 默认值
+    private int ioThreads = 0;
+
+    // 服务端监听队列长度
+    private int backlog = AkiRpcConstants.BACKLOG;
+
+    // 内核接收/发送缓冲区大小，小于等于0时使用系统默认值
+    private int receiveBufferSize = 0;
+    private int sendBufferSize = 0;
+
+    // 写缓冲区低/高水位
+    private int writeBufferLowWaterMark = AkiRpcConstants.WRITE_BUFFER_LOW_WATER_MARK;
+    private int writeBufferHighWaterMark = AkiRpcConstants.WRITE_BUFFER_HIGH_WATER_MARK;
+
+    // 是否使用池化的 ByteBuf 分配器
+    private boolean pooledAllocator = true;
+
+    // 客户端单连接等待响应的最大请求数（进行中的流式调用各占一个），小于等于0时不限制
+    private int maxPendingRequests = 0;
+
+    // 背压时是否立即失败（否则在调用超时时间内等待）
+    private boolean backpressureFailFast = false;
+
+    // 是否开启访问日志
+    private boolean accessLog = false;
+
+    // 访问日志全局采样率
+    private double accessLogSampleRate = 1.0;
 }
@@ -0,0 +1,40 @@
+package com.aki.rpc.config;
+
+import com.aki.rpc.annotation.AkiService;
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.CompressTypeEnum;
+import lombok.Data;
+
+// 服务发布方（@AkiService）相关配置类，每个发布的服务持有一份
+@Data
+public class AkiServiceConfig {
+
+    private String version = "1.0";
+
+    // 响应消息体的压缩类型
+    private byte compress = CompressTypeEnum.GZIP.getCode();
+
+    // 独立业务线程数，小于等于0时使用服务端共用的业务执行器
+    private int threads = 0;
+
+    // 独立线程池的排队上限
+    private int queueSize = AkiRpcConstants.BULKHEAD_QUEUE_SIZE;
+
+    // 访问日志采样率，小于0时使用全局采样率
+    private double accessLogSampleRate = -1;
+
+    /**
+     * 读取 @AkiService 注解构建配置
+     * @param akiService
+     * @return
+     */
+    public static AkiServiceConfig from(AkiService akiService) {
+        AkiServiceConfig config = new AkiServiceConfig();
+        config.setVersion(akiService.version());
+        config.setCompress(akiService.compress().getCode());
+        config.setThreads(akiService.threads());
+        config.setQueueSize(Math.max(0, akiService.queueSize()));
+        config.setAccessLogSampleRate(akiService.accessLogSampleRate());
+        return config;
+    }
+}
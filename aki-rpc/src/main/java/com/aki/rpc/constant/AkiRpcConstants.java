@@ -34,6 +34,77 @@ public class AkiRpcConstants {
      */
     public static final int HEAD_LENGTH = 16;
 
+    /**
+     * 单帧最大长度（单位：字节）。
+     * - 解码器据此拒绝超长帧；解压时原始长度前缀超过该值同样视为非法，避免对端伪造长度迫使本端申请超大内存。
+     */
+    public static final int MAX_FRAME_LENGTH = 8 * 1024 * 1024;
+
+    /**
+     * 默认压缩阈值（单位：字节）。
+     * - 序列化后的 body 小于该值时不进行压缩，帧头的压缩类型写为 NONE。
+     * - 小报文压缩收益极低，反而要承担压缩头部与压缩器初始化的开销。
+     */
+    public static final int COMPRESS_THRESHOLD = 1024;
+
+    /**
+     * 默认调用超时时间（单位：毫秒）。
+     * - 超时后等待中的请求会被移除，调用方收到 AkiRpcTimeoutException。
+     * - 之后才到达的响应会在解码阶段直接丢弃。
+     */
+    public static final long REQUEST_TIMEOUT = 3000;
+
+    /**
+     * 一致性哈希中权重为 100（Nacos 权重 1.0）的实例对应的虚拟节点数。
+     * - 虚拟节点越多，各实例分到的区段越均匀，但哈希环的构建与内存开销随之增加。
+     */
+    public static final int CONSISTENT_HASH_NODES = 160;
+
+    /**
+     * 服务独立线程池（舱壁）的默认排队上限。
+     * - 线程全部繁忙且队列已满时，新请求直接以过载响应快速拒绝，而不是无限排队拖慢所有调用。
+     */
+    public static final int BULKHEAD_QUEUE_SIZE = 128;
+
+    /**
+     * 服务端自适应并发限制的初始/最小/最大并发上限。
+     * - 上限随观测到的调用耗时在 [MIN, MAX] 之间调整，超出上限的请求以过载响应快速拒绝。
+     */
+    public static final int ADAPTIVE_LIMIT_INITIAL = 20;
+    public static final int ADAPTIVE_LIMIT_MIN = 4;
+    public static final int ADAPTIVE_LIMIT_MAX = 1000;
+
+    /**
+     * 服务端监听队列（已完成三次握手、等待 accept 的连接）的默认长度。
+     * - 连接建立频繁（大量客户端同时上线）时可适当调大，实际上限受内核 somaxconn 限制。
+     */
+    public static final int BACKLOG = 1024;
+
+    /**
+     * 连接写缓冲区的默认低/高水位（字节），与 Netty 默认值一致。
+     * - 待写出数据超过高水位时连接变为不可写，回落到低水位以下后恢复可写。
+     */
+    public static final int WRITE_BUFFER_LOW_WATER_MARK = 32 * 1024;
+    public static final int WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+
+    /**
+     * 访问日志环形缓冲区的槽位数，须为 2 的幂。
+     * - 日志输出跟不上时缓冲区写满，新的访问记录被丢弃并计数，调用线程不会因此阻塞。
+     */
+    public static final int ACCESS_LOG_BUFFER_SIZE = 8192;
+
+    /**
+     * 流式调用的默认信用窗口（元素数）。
+     * - 客户端最多缓存该数量的未消费元素，消费过半后再向服务端补充信用，服务端信用耗尽即暂停发送。
+     */
+    public static final int STREAM_WINDOW = 256;
+
+    /**
+     * 流式响应每个数据块最多携带的元素数。
+     * - 单帧仍受解码器 8MB 上限约束，单个元素较大时应相应减小 @AkiReference.streamWindow。
+     */
+    public static final int STREAM_CHUNK_SIZE = 32;
+
     /**
      * 心跳消息内容，用于维持长连接的活跃状态。
      * - "ping" 表示客户端向服务端发送的心跳检测包。
@@ -10,8 +10,11 @@ import lombok.Getter;
 @Getter
 public enum CompressTypeEnum {
 	//读取协议这的压缩类型，来此枚举进行匹配
+    NONE((byte) 0x00, "none"),       // 不压缩，body 为序列化后的原始字节
     GZIP((byte) 0x01, "gzip"),       // gzip压缩类型
-    OTHER((byte) 0x02, "other");     // 拓展位，其他压缩类型
+    OTHER((byte) 0x02, "other"),     // 拓展位，其他压缩类型
+    LZ4((byte) 0x03, "lz4"),         // lz4块压缩类型，速度优先
+    ZSTD((byte) 0x04, "zstd");       // zstd压缩类型，兼顾压缩率与速度
 
     private final byte code;
     private final String name;
@@ -0,0 +1,20 @@
+package com.aki.rpc.constant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 内置的负载均衡策略名称，与 @AkiReference 的 loadBalance 属性对应
+ */
+@AllArgsConstructor
+@Getter
+public enum LoadBalanceTypeEnum {
+
+    RANDOM("random"),               // 按权重随机
+    ROUND_ROBIN("roundrobin"),      // 平滑加权轮询
+    LEAST_ACTIVE("leastactive"),    // 最少进行中调用数优先
+    P2C("p2c"),                     // 随机取两个，选延迟*负载较低的一个（power of two choices）
+    CONSISTENT_HASH("consistenthash"); // 一致性哈希，相同参数路由到同一实例
+
+    private final String name;
+}
@@ -13,7 +13,12 @@ public enum MessageTypeEnum {
     REQUEST((byte) 0x01, "request"),            // 请求消息类型
     RESPONSE((byte) 0x02, "response"),          // 响应消息类型
     HEARTBEAT_PING((byte) 0x03, "heart ping"),  // 心跳检测请求消息类型
-    HEARTBEAT_PONG((byte) 0x04, "heart pong");  // 心跳检测响应消息类型
+    HEARTBEAT_PONG((byte) 0x04, "heart pong"),  // 心跳检测响应消息类型
+    HANDSHAKE_REQUEST((byte) 0x05, "handshake request"),    // 连接握手请求消息类型
+    HANDSHAKE_RESPONSE((byte) 0x06, "handshake response"),  // 连接握手响应消息类型，携带方法id映射
+    STREAM_CHUNK((byte) 0x07, "stream chunk"),  // 流式响应数据块，携带一批元素
+    STREAM_END((byte) 0x08, "stream end"),      // 流式响应结束，携带最终状态码
+    STREAM_CREDIT((byte) 0x09, "stream credit"); // 流式响应信用，客户端授予服务端可继续发送的元素数，或取消该流
 
     private final byte code;
     private final String name;
@@ -0,0 +1,20 @@
+package com.aki.rpc.constant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 响应状态码，对应 AkiResponse.code
+ */
+@AllArgsConstructor
+@Getter
+public enum ResponseCodeEnum {
+
+    SUCCESS(200, "success"),            // 调用成功
+    FAIL(500, "fail"),                  // 调用失败
+    OVERLOADED(503, "overloaded");      // 服务端过载被快速拒绝，请求未执行，可换实例重试
+
+    private final int code;
+    private final String name;
+
+}
@@ -0,0 +1,19 @@
+package com.aki.rpc.constant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 网络传输实现
+ */
+@AllArgsConstructor
+@Getter
+public enum TransportTypeEnum {
+
+    AUTO("auto"),       // Linux 上 epoll 可用时使用 epoll，否则使用 NIO
+    EPOLL("epoll"),     // 使用 epoll，不可用时退回 NIO
+    NIO("nio");         // 使用 JDK NIO
+
+    private final String name;
+
+}
@@ -0,0 +1,12 @@
+package com.aki.rpc.exception;
+
+/**
+ * 调用超时：在设定时间内未收到服务端响应
+ * 与连接异常、服务端异常区分开，调用方可据此单独处理（重试、降级等）
+ */
+public class AkiRpcTimeoutException extends AkiRpcException {
+
+    public AkiRpcTimeoutException(String msg){
+        super(msg);
+    }
+}
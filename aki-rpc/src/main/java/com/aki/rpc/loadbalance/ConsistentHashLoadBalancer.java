@@ -0,0 +1,131 @@
+package com.aki.rpc.loadbalance;
+
+import com.aki.rpc.config.AkiReferenceConfig;
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.LoadBalanceTypeEnum;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.register.ProviderInstance;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Auther akizora
+ * 一致性哈希：相同的参数值总是路由到同一个服务提供方，适合依赖提供方本地缓存的查询类服务
+ * - 每个实例按权重在哈希环上放置若干虚拟节点（权重 100 对应 AkiRpcConstants.CONSISTENT_HASH_NODES 个）
+ * - 虚拟节点位置只由 ip:port 决定，实例上下线时只有与其相邻的区段会迁移，其余请求的路由保持不变
+ * - 参与哈希的参数下标由 @AkiReference 的 hashArguments 按方法配置，默认取第 0 个参数
+ * 哈希环按服务缓存，服务目录快照（数组引用）变化时重建
+ */
+public class ConsistentHashLoadBalancer implements LoadBalancer {
+
+    private final Map<String, HashRing> rings = new ConcurrentHashMap<>();
+
+    @Override
+    public String name() {
+        return LoadBalanceTypeEnum.CONSISTENT_HASH.getName();
+    }
+
+    @Override
+    public ProviderInstance select(String serviceName, ProviderInstance[] instances, AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig) {
+        if (instances.length == 1) {
+            return instances[0];
+        }
+        HashRing ring = rings.get(serviceName);
+        if (ring == null || ring.instances != instances) {
+            ring = new HashRing(instances);
+            rings.put(serviceName, ring);
+        }
+        return ring.select(hash(hashKey(akiRequest, akiReferenceConfig)));
+    }
+
+    /**
+     * 取出参与哈希的参数值，方法无参数或下标越界时以方法名作为哈希键
+     * 下标在解析 @AkiReference 时已校验为非负，这里仍按越界处理，避免手工构建的配置导致数组越界
+     * @param akiRequest
+     * @param akiReferenceConfig
+     * @return
+     */
+    private static String hashKey(AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig) {
+        Object[] parameters = akiRequest.getParameters();
+        int index = akiReferenceConfig.getHashArgument(akiRequest.getMethodName());
+        if (parameters == null || index < 0 || index >= parameters.length) {
+            return akiRequest.getMethodName();
+        }
+        return String.valueOf(parameters[index]);
+    }
+
+    /**
+     * 64 位 FNV-1a，再经 murmur3 的 fmix64 打散，使相近的字符串（如连续的 id）在环上均匀分布
+     * @param key
+     * @return
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 哈希环：虚拟节点按哈希值排序存放在数组中，查找为一次二分
+     */
+    private static final class HashRing {
+        private final ProviderInstance[] instances;
+        private final long[] hashes;
+        private final ProviderInstance[] nodes;
+
+        private HashRing(ProviderInstance[] instances) {
+            this.instances = instances;
+            // 1. 按权重计算每个实例的虚拟节点数
+            int total = 0;
+            int[] replicas = new int[instances.length];
+            for (int i = 0; i < instances.length; i++) {
+                replicas[i] = Math.max(1, (int) ((long) AkiRpcConstants.CONSISTENT_HASH_NODES * instances[i].getWeight() / 100));
+                total += replicas[i];
+            }
+            // 2. 生成虚拟节点并按哈希值排序
+            long[][] points = new long[total][2];
+            int n = 0;
+            for (int i = 0; i < instances.length; i++) {
+                String key = instances[i].getKey();
+                for (int j = 0; j < replicas[i]; j++) {
+                    points[n][0] = hash(key + "#" + j);
+                    points[n][1] = i;
+                    n++;
+                }
+            }
+            Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+            this.hashes = new long[total];
+            this.nodes = new ProviderInstance[total];
+            for (int i = 0; i < total; i++) {
+                hashes[i] = points[i][0];
+                nodes[i] = instances[(int) points[i][1]];
+            }
+        }
+
+        /**
+         * 顺时针找到第一个哈希值不小于 hash 的虚拟节点，越过环尾则回到环首
+         * @param hash
+         * @return
+         */
+        private ProviderInstance select(long hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (index == hashes.length) {
+                index = 0;
+            }
+            return nodes[index];
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.aki.rpc.loadbalance;
+
+import com.aki.rpc.config.AkiReferenceConfig;
+import com.aki.rpc.constant.LoadBalanceTypeEnum;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.register.ProviderInstance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @Auther akizora
+ * 最少活跃调用数优先：进行中调用越少，说明实例处理越快，优先选择
+ * 活跃数相同的多个实例之间按权重随机
+ */
+public class LeastActiveLoadBalancer implements LoadBalancer {
+
+    @Override
+    public String name() {
+        return LoadBalanceTypeEnum.LEAST_ACTIVE.getName();
+    }
+
+    @Override
+    public ProviderInstance select(String serviceName, ProviderInstance[] instances, AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig) {
+        int length = instances.length;
+        if (length == 1) {
+            return instances[0];
+        }
+        // 1. 找出最小活跃数，并记录具有该活跃数的实例下标
+        int leastActive = Integer.MAX_VALUE;
+        int leastCount = 0;
+        int[] leastIndexes = new int[length];
+        int totalWeight = 0;
+        for (int i = 0; i < length; i++) {
+            int active = instances[i].getStats().getActive();
+            if (active < leastActive) {
+                leastActive = active;
+                leastCount = 0;
+                totalWeight = 0;
+            }
+            if (active == leastActive) {
+                leastIndexes[leastCount++] = i;
+                totalWeight += instances[i].getWeight();
+            }
+        }
+        if (leastCount == 1) {
+            return instances[leastIndexes[0]];
+        }
+        // 2. 多个实例活跃数相同，按权重随机
+        int offset = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < leastCount; i++) {
+            ProviderInstance instance = instances[leastIndexes[i]];
+            offset -= instance.getWeight();
+            if (offset < 0) {
+                return instance;
+            }
+        }
+        return instances[leastIndexes[leastCount - 1]];
+    }
+}
@@ -0,0 +1,29 @@
+package com.aki.rpc.loadbalance;
+
+import com.aki.rpc.config.AkiReferenceConfig;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.register.ProviderInstance;
+
+/**
+ * @Auther akizora
+ * 负载均衡接口，所有负载均衡策略都要实现这个接口，通过SPI装载
+ * 实现类在所有服务引用间共享，必须是线程安全的
+ */
+public interface LoadBalancer {
+    /**
+     * 负载均衡策略名称，对应 @AkiReference 的 loadBalance 属性
+     * @return
+     */
+    String name();
+
+    /**
+     * 从服务提供方快照中选出一个实例
+     *
+     * @param serviceName 服务名（接口名+版本）
+     * @param instances   服务目录中的提供方快照，非空且不可修改；快照更新时数组引用随之改变
+     * @param akiRequest  本次请求
+     * @param akiReferenceConfig 服务引用方配置
+     * @return 选中的实例
+     */
+    ProviderInstance select(String serviceName, ProviderInstance[] instances, AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig);
+}
@@ -0,0 +1,50 @@
+package com.aki.rpc.loadbalance;
+
+import com.aki.rpc.exception.AkiRpcException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Auther akizora
+ * 负载均衡注册表：策略名称 -> 预构建的负载均衡实例
+ * 启动时通过SPI一次性扫描 META-INF/services 完成装载
+ */
+@Slf4j
+public final class LoadBalancerRegistry {
+
+    private static final Map<String, LoadBalancer> LOAD_BALANCERS = new ConcurrentHashMap<>();
+
+    static {
+        for (LoadBalancer loadBalancer : ServiceLoader.load(LoadBalancer.class)) {
+            LOAD_BALANCERS.put(loadBalancer.name(), loadBalancer);
+            log.info("SPI: 装载负载均衡策略 {} -> {}", loadBalancer.name(), loadBalancer.getClass().getName());
+        }
+    }
+
+    private LoadBalancerRegistry() {
+    }
+
+    /**
+     * 根据策略名称获取负载均衡实例
+     * @param name
+     * @return
+     */
+    public static LoadBalancer get(String name) {
+        LoadBalancer loadBalancer = LOAD_BALANCERS.get(name);
+        if (loadBalancer == null) {
+            throw new AkiRpcException("无对应的负载均衡策略:" + name);
+        }
+        return loadBalancer;
+    }
+
+    /**
+     * 手动注册负载均衡策略
+     * @param loadBalancer
+     */
+    public static void register(LoadBalancer loadBalancer) {
+        LOAD_BALANCERS.put(loadBalancer.name(), loadBalancer);
+    }
+}
@@ -0,0 +1,47 @@
+package com.aki.rpc.loadbalance;
+
+import com.aki.rpc.config.AkiReferenceConfig;
+import com.aki.rpc.constant.LoadBalanceTypeEnum;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.register.ProviderInstance;
+import com.aki.rpc.register.ProviderStats;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @Auther akizora
+ * power of two choices：随机取两个实例，选负载更低的一个
+ * 负载 = EWMA 响应耗时 * (进行中调用数 + 1) / 权重，慢实例与积压实例都会被自然避开
+ * 只比较两个实例，开销与实例数无关，又能避免“全体涌向同一个最优实例”的羊群效应
+ */
+public class P2cLoadBalancer implements LoadBalancer {
+
+    @Override
+    public String name() {
+        return LoadBalanceTypeEnum.P2C.getName();
+    }
+
+    @Override
+    public ProviderInstance select(String serviceName, ProviderInstance[] instances, AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig) {
+        int length = instances.length;
+        if (length == 1) {
+            return instances[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(length);
+        int second = random.nextInt(length - 1);
+        if (second >= first) {
+            second++;
+        }
+        ProviderInstance a = instances[first];
+        ProviderInstance b = instances[second];
+        return load(a) <= load(b) ? a : b;
+    }
+
+    private static double load(ProviderInstance instance) {
+        ProviderStats stats = instance.getStats();
+        // 尚无耗时样本的实例按 1ns 计，使新上线的实例能尽快获得流量并产生样本
+        long latency = Math.max(1, stats.getEwmaLatency());
+        return (double) latency * (stats.getActive() + 1) / instance.getWeight();
+    }
+}
@@ -0,0 +1,51 @@
+package com.aki.rpc.loadbalance;
+
+import com.aki.rpc.config.AkiReferenceConfig;
+import com.aki.rpc.constant.LoadBalanceTypeEnum;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.register.ProviderInstance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @Auther akizora
+ * 按权重随机，权重全部相同时退化为均匀随机
+ */
+public class RandomLoadBalancer implements LoadBalancer {
+
+    @Override
+    public String name() {
+        return LoadBalanceTypeEnum.RANDOM.getName();
+    }
+
+    @Override
+    public ProviderInstance select(String serviceName, ProviderInstance[] instances, AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig) {
+        int length = instances.length;
+        if (length == 1) {
+            return instances[0];
+        }
+        // 1. 统计总权重，并判断权重是否全部相同
+        int totalWeight = 0;
+        boolean sameWeight = true;
+        for (int i = 0; i < length; i++) {
+            int weight = instances[i].getWeight();
+            totalWeight += weight;
+            if (sameWeight && weight != instances[0].getWeight()) {
+                sameWeight = false;
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (sameWeight) {
+            return instances[random.nextInt(length)];
+        }
+        // 2. 在 [0, totalWeight) 中取随机数，落在哪个实例的权重区间就选哪个
+        int offset = random.nextInt(totalWeight);
+        for (ProviderInstance instance : instances) {
+            offset -= instance.getWeight();
+            if (offset < 0) {
+                return instance;
+            }
+        }
+        return instances[length - 1];
+    }
+}
@@ -0,0 +1,75 @@
+package com.aki.rpc.loadbalance;
+
+import com.aki.rpc.config.AkiReferenceConfig;
+import com.aki.rpc.constant.LoadBalanceTypeEnum;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.register.ProviderInstance;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Auther akizora
+ * 平滑加权轮询（同 nginx smooth weighted round-robin）
+ * 每次选择：所有实例的当前值加上各自权重，取当前值最大者，并将其当前值减去总权重
+ * 权重 5:1:1 时选择序列为 a a b a c a a，而不是 a a a a a b c
+ * 轮询状态按服务缓存，服务目录快照（数组引用）变化时重建
+ */
+public class RoundRobinLoadBalancer implements LoadBalancer {
+
+    private final Map<String, RoundRobinState> states = new ConcurrentHashMap<>();
+
+    @Override
+    public String name() {
+        return LoadBalanceTypeEnum.ROUND_ROBIN.getName();
+    }
+
+    @Override
+    public ProviderInstance select(String serviceName, ProviderInstance[] instances, AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig) {
+        if (instances.length == 1) {
+            return instances[0];
+        }
+        RoundRobinState state = states.get(serviceName);
+        if (state == null || state.instances != instances) {
+            state = new RoundRobinState(instances);
+            states.put(serviceName, state);
+        }
+        return state.next();
+    }
+
+    private static final class RoundRobinState {
+        private final ProviderInstance[] instances;
+        private final AtomicLong[] current;
+        private final long totalWeight;
+
+        private RoundRobinState(ProviderInstance[] instances) {
+            this.instances = instances;
+            this.current = new AtomicLong[instances.length];
+            long total = 0;
+            for (int i = 0; i < instances.length; i++) {
+                current[i] = new AtomicLong();
+                total += instances[i].getWeight();
+            }
+            this.totalWeight = total;
+        }
+
+        /**
+         * 并发下各实例的当前值以原子方式累加，不加锁；
+         * 偶发的竞争只会让选择序列略微偏离理想顺序，长期比例仍与权重一致
+         */
+        private ProviderInstance next() {
+            int selected = 0;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < instances.length; i++) {
+                long value = current[i].addAndGet(instances[i].getWeight());
+                if (value > max) {
+                    max = value;
+                    selected = i;
+                }
+            }
+            current[selected].addAndGet(-totalWeight);
+            return instances[selected];
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.aki.rpc.message;
+
+import io.netty.util.AttributeKey;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * @Auther akizora
+ * 连接握手消息体
+ * 客户端连接建立后发送握手请求，服务端回复其所有已发布方法的 方法签名 -> 方法id 映射
+ * 握手完成后，该连接上的请求只携带方法id与参数，不再携带接口名、方法名、版本与参数类型
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AkiHandshake implements Serializable {
+
+    // channel 属性键，客户端收到握手响应后将方法id映射绑定到连接上
+    public static final AttributeKey<Map<String, Integer>> KEY = AttributeKey.valueOf("akiMethodIds");
+
+    // 方法签名 -> 方法id，仅握手响应中携带
+    private Map<String, Integer> methodIds;
+
+    /**
+     * 方法签名，收发两端按同样的规则生成，如 com.aki.GoodsService#1.0#findGoods(java.lang.Long)
+     * @param interfaceName
+     * @param version
+     * @param methodName
+     * @param paramTypes
+     * @return
+     */
+    public static String methodKey(String interfaceName, String version, String methodName, Class<?>[] paramTypes) {
+        StringBuilder builder = new StringBuilder(interfaceName).append('#').append(version).append('#').append(methodName).append('(');
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(paramTypes[i].getName());
+        }
+        return builder.append(')').toString();
+    }
+}
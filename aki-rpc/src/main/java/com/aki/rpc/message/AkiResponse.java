@@ -1,5 +1,6 @@
 package com.aki.rpc.message;
 
+import com.aki.rpc.constant.ResponseCodeEnum;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,16 +18,14 @@ import java.io.Serializable;
 @Builder
 public class AkiResponse<T> implements Serializable {
 
-    private String requestId;        // 请求唯一标识，用于追踪或匹配请求与响应
     private Integer code;            // 返回状态码
     private String message;          // 返回消息体
     private T data;                  // 返回数据
 
-    public static <T> AkiResponse<T> success(T data, String requestId) {
+    public static <T> AkiResponse<T> success(T data) {
         AkiResponse<T> response = new AkiResponse<>();
-        response.setCode(200);
+        response.setCode(ResponseCodeEnum.SUCCESS.getCode());
         response.setMessage("success");
-        response.setRequestId(requestId);
         if (null != data) {
             response.setData(data);
         }
@@ -35,7 +34,17 @@ public class AkiResponse<T> implements Serializable {
 
     public static <T> AkiResponse<T> fail(String message) {
         AkiResponse<T> response = new AkiResponse<>();
-        response.setCode(500);
+        response.setCode(ResponseCodeEnum.FAIL.getCode());
+        response.setMessage(message);
+        return response;
+    }
+
+    /**
+     * 服务端过载时的快速拒绝响应，请求未被执行
+     */
+    public static <T> AkiResponse<T> overloaded(String message) {
+        AkiResponse<T> response = new AkiResponse<>();
+        response.setCode(ResponseCodeEnum.OVERLOADED.getCode());
         response.setMessage(message);
         return response;
     }
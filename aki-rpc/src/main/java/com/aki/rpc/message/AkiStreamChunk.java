@@ -0,0 +1,22 @@
+package com.aki.rpc.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * @Auther akizora
+ * 流式响应数据块消息体
+ * 服务端按客户端授予的信用分批发送元素，每块最多 AkiRpcConstants.STREAM_CHUNK_SIZE 个，帧头 requestId 即发起调用的请求id
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AkiStreamChunk implements Serializable {
+
+    // 本块携带的元素，按服务端产生的顺序排列
+    private List<Object> items;
+}
@@ -0,0 +1,25 @@
+package com.aki.rpc.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @Auther akizora
+ * 流式响应信用消息体
+ * 客户端每消费一部分元素即补充同等数量的信用，服务端只在信用大于0时继续发送，消费慢的客户端不会被数据淹没
+ * 客户端提前关闭流时以 cancel=true 通知服务端停止生产并释放数据源
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AkiStreamCredit implements Serializable {
+
+    // 追加的信用（元素数）
+    private int credits;
+
+    // 客户端已放弃剩余数据
+    private boolean cancel;
+}
@@ -1,34 +1,205 @@
 package com.aki.rpc.message;
 
-import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.netty.client.StreamReceiver;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 
-
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @Auther Akizora
- * 线程安全的存储请求id-异步任务的映射
+ * 单条连接上 请求id-异步任务 的映射，每个客户端 channel 持有一份（挂在 channel 属性上）
+ * 请求id 即协议头中的 4B RequestId，由本连接自增生成，响应按帧头 id 匹配，无需反序列化 body
+ * *所有方法只允许在 channel 所属的 EventLoop 线程中调用，因此使用非线程安全的原始 int 映射即可
+ * （size、tryReserve、awaitReserve、release 除外，供调用方线程在发送前做背压判断与名额预留）
+ * 等待名额在调用方线程准入时原子预留，登记后由对应的移除（响应、超时、写失败、取消、连接关闭）归还；
+ * 预留后未能登记的请求须调用 release 归还
  */
 public class UnprocessedRequests {
 
-    // 使用线程安全的ConcurrentHashMap来存储未处理的请求。Map的key是请求的requestId，value是一个CompletableFuture对象，用于异步获取响应结果。
-    private static final Map<String, CompletableFuture<AkiResponse<Object>>> UP = new ConcurrentHashMap<>();
+    // channel 属性键，由 AkiNettyClientHandler 在加入 pipeline 时绑定
+    public static final AttributeKey<UnprocessedRequests> KEY = AttributeKey.valueOf("akiUnprocessedRequests");
+
+    // Map的key是请求的requestId，value是一个CompletableFuture对象，用于异步获取响应结果。
+    private final IntObjectMap<CompletableFuture<AkiResponse<Object>>> up = new IntObjectHashMap<>();
+
+    // 流式调用 请求id-接收端，与普通请求共用本连接的 requestId 序列
+    private final IntObjectMap<StreamReceiver> streams = new IntObjectHashMap<>();
+
+    // 本连接的请求序号，0 保留给心跳等非请求消息
+    private int sequence;
+
+    // 已预留的等待名额数：等待中的请求与进行中的流式调用，加上已准入、尚未在 EventLoop 中登记的请求
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // 背压：调用方线程在连接不可写或积压过多时在此等待，EventLoop 在请求完成、可写性变化时唤醒
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition capacityAvailable = capacityLock.newCondition();
+    private volatile int waiters;
 
-    // put方法用于将一个未处理的请求（及其对应的CompletableFuture）存入UP映射中。
-    public void put(String requestId,CompletableFuture<AkiResponse<Object>> resultFuture){
-        UP.put(requestId,resultFuture);
+    // put方法为请求分配本连接内唯一的requestId，并存入对应的CompletableFuture；占用准入时预留的名额
+    public int put(CompletableFuture<AkiResponse<Object>> resultFuture){
+        int requestId = nextRequestId();
+        up.put(requestId, resultFuture);
+        return requestId;
+    }
+
+    // 登记一次流式调用，分配requestId；流结束前一直占用准入时预留的名额，与普通请求共用 maxPendingRequests
+    public int putStream(StreamReceiver streamReceiver){
+        int requestId = nextRequestId();
+        streams.put(requestId, streamReceiver);
+        return requestId;
+    }
+
+    // 获取进行中的流式调用，已结束/已取消时返回null
+    public StreamReceiver getStream(int requestId){
+        return streams.get(requestId);
+    }
+
+    // 移除进行中的流式调用（结束、失败或取消），归还等待名额
+    public StreamReceiver removeStream(int requestId){
+        StreamReceiver streamReceiver = streams.remove(requestId);
+        if (streamReceiver != null) {
+            release();
+        }
+        return streamReceiver;
+    }
+
+    private int nextRequestId(){
+        int requestId = ++sequence;
+        if (requestId <= 0) {
+            // 溢出回绕，跳过 0 与负数
+            sequence = 1;
+            requestId = 1;
+        }
+        return requestId;
+    }
+
+    // 判断请求是否仍在等待响应，已超时/已完成的请求返回false
+    public boolean contains(int requestId){
+        return up.containsKey(requestId);
+    }
+
+    // 移除等待中的请求
+    public CompletableFuture<AkiResponse<Object>> remove(int requestId){
+        CompletableFuture<AkiResponse<Object>> completableFuture = up.remove(requestId);
+        if (completableFuture != null) {
+            release();
+        }
+        return completableFuture;
     }
 
     // complete方法用于将响应数据（AkiResponse对象）与相应的CompletableFuture关联起来，完成异步操作。
-    public CompletableFuture<AkiResponse<Object>> complete(AkiResponse<Object> akiResponse){
+    public CompletableFuture<AkiResponse<Object>> complete(int requestId, AkiResponse<Object> akiResponse){
         // 清除相应
-        CompletableFuture<AkiResponse<Object>> completableFuture = UP.remove(akiResponse.getRequestId());
+        CompletableFuture<AkiResponse<Object>> completableFuture = remove(requestId);
         if (completableFuture != null){
             completableFuture.complete(akiResponse);
-            return completableFuture;
         }
-        throw new AkiRpcException("获取结果数据出现问题");
+        return completableFuture;
+    }
+
+    // 连接断开时，所有等待中的请求以异常结束，避免调用方永久阻塞
+    public void failAll(Throwable cause){
+        // 先移除再通知，调用方在回调中发起的新请求不会被本次清理误伤
+        int removed = up.size() + streams.size();
+        CompletableFuture<?>[] futures = up.values().toArray(new CompletableFuture<?>[0]);
+        StreamReceiver[] receivers = streams.values().toArray(new StreamReceiver[0]);
+        up.clear();
+        streams.clear();
+        pending.addAndGet(-removed);
+        signalCapacity();
+        for (CompletableFuture<?> completableFuture : futures) {
+            completableFuture.completeExceptionally(cause);
+        }
+        for (StreamReceiver streamReceiver : receivers) {
+            streamReceiver.fail(cause);
+        }
+    }
+
+    // 已预留的等待名额数（含进行中的流式调用），可在任意线程读取
+    public int size(){
+        return pending.get();
+    }
+
+    /**
+     * 连接可写且等待名额未达上限时原子地预留一个名额，可在任意线程调用
+     * 预留成功后须登记请求（put/putStream），登记前放弃发送的须调用 release 归还
+     * @param channel
+     * @param maxPending 单连接等待响应的请求数上限，小于等于0时不限制（仍计数）
+     * @return 是否预留成功
+     */
+    public boolean tryReserve(Channel channel, int maxPending){
+        if (!channel.isWritable()) {
+            return false;
+        }
+        if (maxPending <= 0) {
+            pending.incrementAndGet();
+            return true;
+        }
+        for (;;) {
+            int current = pending.get();
+            if (current >= maxPending) {
+                return false;
+            }
+            if (pending.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还一个预留的名额并唤醒等待者
+     */
+    public void release(){
+        pending.decrementAndGet();
+        signalCapacity();
+    }
+
+    /**
+     * 在调用方线程中等待连接恢复容量并预留名额，不能在 EventLoop 中调用
+     * @param channel
+     * @param maxPending
+     * @param timeoutNanos
+     * @return 预留成功返回true；超时或连接关闭时返回false
+     */
+    public boolean awaitReserve(Channel channel, int maxPending, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        capacityLock.lock();
+        try {
+            waiters++;
+            while (!tryReserve(channel, maxPending)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !channel.isActive()) {
+                    return false;
+                }
+                capacityAvailable.await(remaining, TimeUnit.NANOSECONDS);
+            }
+            return true;
+        } finally {
+            waiters--;
+            capacityLock.unlock();
+        }
+    }
+
+    /**
+     * 唤醒等待容量的调用方，没有等待者时只有一次 volatile 读
+     */
+    public void signalCapacity(){
+        if (waiters == 0) {
+            return;
+        }
+        capacityLock.lock();
+        try {
+            capacityAvailable.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
     }
 }
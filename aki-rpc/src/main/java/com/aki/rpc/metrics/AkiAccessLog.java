@@ -0,0 +1,182 @@
+package com.aki.rpc.metrics;
+
+import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.constant.AkiRpcConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.SocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @Auther akizora
+ * RPC 访问日志，通过 SingletonFactory 获取单例，默认关闭
+ * - 调用线程只做采样判断并把字段写入预分配的环形缓冲区槽位，不做字符串拼接与IO
+ * - 单个后台线程批量取出并以 key=value 格式写入名为 "aki-rpc-access" 的 logger
+ * - 缓冲区满时丢弃新记录并计数，日志输出变慢不会反压到调用线程
+ * - 采样率可按服务覆盖（@AkiService/@AkiReference.accessLogSampleRate），未指定时使用 @EnableRpc 的全局采样率
+ */
+public class AkiAccessLog {
+
+    private static final Logger ACCESS_LOGGER = LoggerFactory.getLogger("aki-rpc-access");
+
+    public static final String PROVIDER = "provider";
+    public static final String CONSUMER = "consumer";
+
+    private final Entry[] entries;
+    private final int mask;
+
+    // 每个槽位已发布的序号，消费线程据此判断槽位是否写入完成
+    private final AtomicLongArray published;
+
+    // 下一个待分配的序号（生产者）与下一个待消费的序号（消费线程）
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean enabled;
+    private volatile double sampleRate = 1.0;
+    private Thread worker;
+
+    public AkiAccessLog() {
+        int capacity = AkiRpcConstants.ACCESS_LOG_BUFFER_SIZE;
+        entries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+        }
+        mask = capacity - 1;
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * 按配置开启访问日志，重复调用只生效一次
+     * @param akiRpcConfig
+     */
+    public synchronized void start(AkiRpcConfig akiRpcConfig) {
+        sampleRate = akiRpcConfig.getAccessLogSampleRate();
+        if (!akiRpcConfig.isAccessLog() || worker != null) {
+            return;
+        }
+        worker = new Thread(this::drainLoop, "aki-rpc-access-log");
+        worker.setDaemon(true);
+        worker.start();
+        enabled = true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 本次调用是否需要记录
+     * @param serviceSampleRate 服务级采样率，小于0时使用全局采样率
+     * @return
+     */
+    public boolean sample(double serviceSampleRate) {
+        if (!enabled) {
+            return false;
+        }
+        double rate = serviceSampleRate < 0 ? sampleRate : serviceSampleRate;
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * 写入一条访问记录，缓冲区满时丢弃
+     * @param side provider/consumer
+     * @param serviceName
+     * @param methodName
+     * @param remoteAddress
+     * @param code 响应状态码，调用异常（超时、连接失败等）时为 -1
+     * @param latencyNanos
+     * @param error 异常类型，无异常时为null
+     */
+    public void record(String side, String serviceName, String methodName, SocketAddress remoteAddress,
+                       int code, long latencyNanos, String error) {
+        // 1.占用一个槽位，消费线程未跟上时直接丢弃
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= entries.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        // 2.写入字段后发布，发布前消费线程不会读取该槽位
+        Entry entry = entries[(int) sequence & mask];
+        entry.timestamp = System.currentTimeMillis();
+        entry.side = side;
+        entry.serviceName = serviceName;
+        entry.methodName = methodName;
+        entry.remoteAddress = remoteAddress;
+        entry.code = code;
+        entry.latencyNanos = latencyNanos;
+        entry.error = error;
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
+    /**
+     * 因缓冲区已满被丢弃的记录数
+     * @return
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        for (;;) {
+            long next = head;
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                // 没有已发布的记录，短暂休眠后再取，避免空转
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            Entry entry = entries[index];
+            line.setLength(0);
+            line.append("ts=").append(entry.timestamp)
+                    .append(" side=").append(entry.side)
+                    .append(" service=").append(entry.serviceName)
+                    .append(" method=").append(entry.methodName)
+                    .append(" remote=").append(entry.remoteAddress)
+                    .append(" code=").append(entry.code)
+                    .append(" latencyUs=").append(TimeUnit.NANOSECONDS.toMicros(entry.latencyNanos));
+            if (entry.error != null) {
+                line.append(" error=").append(entry.error);
+            }
+            // 释放对象引用后再归还槽位
+            entry.remoteAddress = null;
+            entry.error = null;
+            head = next + 1;
+            try {
+                ACCESS_LOGGER.info(line.toString());
+            } catch (Throwable ignored) {
+                // 日志输出异常不能终止消费线程
+            }
+        }
+    }
+
+    /**
+     * 环形缓冲区中预分配的记录槽位
+     */
+    private static final class Entry {
+        private long timestamp;
+        private String side;
+        private String serviceName;
+        private String methodName;
+        private SocketAddress remoteAddress;
+        private int code;
+        private long latencyNanos;
+        private String error;
+    }
+}
@@ -0,0 +1,45 @@
+package com.aki.rpc.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Auther akizora
+ * 调用统计，通过 SingletonFactory 获取单例
+ * 计数器按接口名（interfaceName+version）分组，使用 LongAdder 避免高并发下的 CAS 争用
+ */
+public class AkiRpcMetrics {
+
+    // 每个接口的超时调用次数
+    private final Map<String, LongAdder> timeoutCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次超时调用
+     * @param serviceName
+     */
+    public void incrementTimeout(String serviceName) {
+        timeoutCounters.computeIfAbsent(serviceName, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 获取某个接口累计的超时调用次数
+     * @param serviceName
+     * @return
+     */
+    public long getTimeoutCount(String serviceName) {
+        LongAdder counter = timeoutCounters.get(serviceName);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * 获取所有接口的超时调用次数快照
+     * @return
+     */
+    public Map<String, Long> getTimeoutCounts() {
+        Map<String, Long> snapshot = new HashMap<>();
+        timeoutCounters.forEach((serviceName, counter) -> snapshot.put(serviceName, counter.sum()));
+        return snapshot;
+    }
+}
@@ -1,19 +1,20 @@
 package com.aki.rpc.netty;
 
-import com.aki.rpc.netty.handler.AkiRpcThreadFactory;
+import com.aki.rpc.config.AkiRpcConfig;
 import com.aki.rpc.netty.handler.NettyServerInitiator;
+import com.aki.rpc.server.AdaptiveConcurrencyLimiter;
 import com.aki.rpc.server.AkiServiceProvider;
-import com.aki.rpc.utils.RuntimeUtil;
+import com.aki.rpc.server.ServiceExecutors;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.logging.LogLevel;
-import io.netty.handler.logging.LoggingHandler;
-import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
 import lombok.extern.slf4j.Slf4j;
 
+import java.net.InetSocketAddress;
+
 /**
  * @Auther akizora
  * netty 服务端的启动主类
@@ -26,7 +27,7 @@ public class NettyServer implements AkiServer {
     private EventLoopGroup workerGroup;
 
     private AkiServiceProvider akiServiceProvider;
-    private DefaultEventExecutorGroup eventExecutors;
+    private ServiceExecutors serviceExecutors;
 
     private boolean isRunning;
 
@@ -35,38 +36,55 @@ public class NettyServer implements AkiServer {
 
     @Override
     public void run() {
-        //1.开辟boos线程 工作线程
-        bossGroup = new NioEventLoopGroup();
-        workerGroup = new NioEventLoopGroup();
+        //1.开辟boos线程 工作线程，Linux 上优先使用 epoll
+        AkiRpcConfig akiRpcConfig = akiServiceProvider.getAkiRpcConfig();
+        boolean epoll = NettyTransport.useEpoll(akiRpcConfig);
+        // 多个监听只在 epoll(SO_REUSEPORT) 下有意义，每个监听绑定在 boss 组中不同的线程上
+        int acceptors = epoll ? Math.max(1, akiRpcConfig.getAcceptors()) : 1;
+        bossGroup = NettyTransport.newEventLoopGroup(epoll, acceptors);
+        workerGroup = NettyTransport.newEventLoopGroup(epoll, Math.max(0, akiRpcConfig.getIoThreads()));
         try {
             // 2.创建服务器引导类
             ServerBootstrap bootstarp = new ServerBootstrap();
 
-            // 3.事件执行器组
-            // 使用AkiRpcThreadFactory的newThread重写方法创建自定义线程
-
-            eventExecutors = new DefaultEventExecutorGroup(RuntimeUtil.cpus() * 2,new AkiRpcThreadFactory(akiServiceProvider));
+            // 3.业务执行器：请求在IO线程解码后转交执行器调用，平台线程池或每请求一个虚拟线程
+            serviceExecutors = new ServiceExecutors(akiServiceProvider.getAkiRpcConfig(), akiServiceProvider);
+            // 自适应并发限制，所有连接共用一份
+            AdaptiveConcurrencyLimiter concurrencyLimiter = akiServiceProvider.getAkiRpcConfig().isAdaptiveLimit()
+                    ? new AdaptiveConcurrencyLimiter() : null;
 
             // 4.服务器引导配置
             bootstarp.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(NettyTransport.serverChannelClass(epoll))
                     // TCP默认开启了 Nagle 算法，该算法的作用是尽可能的发送大数据快，减少网络传输。TCP_NODELAY 参数的作用就是控制是否启用 Nagle 算法。
                     .childOption(ChannelOption.TCP_NODELAY,true)
                     //是否开启 TCP 底层心跳机制 KEEPALIVE 保活
                     .childOption(ChannelOption.SO_KEEPALIVE,true)
-                    //表示系统用于临时存放已完成三次握手的请求的队列的最大长度,如果连接建立频繁，服务器处理创建新连接较慢，可以适当调大这个参数
-                    .childOption(ChannelOption.SO_BACKLOG,1024)
-                    //添加日志处理
-                    .handler(new LoggingHandler(LogLevel.INFO))
                     // 当客户端第一次进行请求的时候才会进行初始化
-                    .childHandler(new NettyServerInitiator(eventExecutors));
+                    .childHandler(new NettyServerInitiator(serviceExecutors, concurrencyLimiter, akiServiceProvider.getAkiRpcConfig()));
+
+            // 4.1 监听队列（SO_BACKLOG 属于监听套接字，设置在父通道上）、连接缓冲区、写水位与分配器
+            NettyTransport.applyOptions(bootstarp, akiRpcConfig);
+
+            // 4.2 epoll 专有选项：边缘触发读取；TCP_QUICKACK 关闭延迟确认，降低请求-响应模式下的单次调用延迟
+            if (epoll) {
+                bootstarp.childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                        .childOption(EpollChannelOption.TCP_QUICKACK, true);
+                if (acceptors > 1) {
+                    bootstarp.option(EpollChannelOption.SO_REUSEPORT, true);
+                }
+            }
 
             // 5.绑定端口，同步等待绑定成功
-            bootstarp.bind(akiServiceProvider
-                            .getAkiRpcConfig()
-                            .getProviderPort())     // 读取配置类的端口号
+            Channel serverChannel = bootstarp.bind(akiRpcConfig.getProviderPort())     // 读取配置类的端口号
                             .sync()                 // 同步等待绑定完成
                             .channel();
+            // 5.1 SO_REUSEPORT：在同一端口上再绑定 acceptors-1 个监听，新连接由内核分摊到各个 boss 线程
+            int boundPort = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+            for (int i = 1; i < acceptors; i++) {
+                bootstarp.bind(boundPort).sync();
+            }
+            log.info("netty server 启动完成, 端口 {}, 传输 {}, 监听数 {}", boundPort, epoll ? "epoll" : "nio", acceptors);
             isRunning = true;
             Runtime.getRuntime().addShutdownHook(new Thread(){
                 @Override
@@ -85,8 +103,8 @@ public class NettyServer implements AkiServer {
      * 有序关闭Netty相关资源
      */
     private void stopNettyServer() {
-        if (eventExecutors != null){
-            eventExecutors.shutdownGracefully();
+        if (serviceExecutors != null){
+            serviceExecutors.shutdown();
         }
         if (bossGroup != null){
             bossGroup.shutdownGracefully();
@@ -0,0 +1,118 @@
+package com.aki.rpc.netty;
+
+import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.constant.TransportTypeEnum;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @Auther akizora
+ * 传输层选择：epoll（Linux 原生，边缘触发，系统调用更少）或 JDK NIO
+ * 客户端与服务端按 @EnableRpc.transport 选择，epoll 不可用（非 Linux、缺少本地库）时自动退回 NIO
+ * 连接级的缓冲区、水位与分配器配置同样在此统一应用到服务端与客户端
+ */
+@Slf4j
+public final class NettyTransport {
+
+    private NettyTransport() {
+    }
+
+    /**
+     * 按配置判断是否使用 epoll
+     * @param akiRpcConfig
+     * @return
+     */
+    public static boolean useEpoll(AkiRpcConfig akiRpcConfig) {
+        TransportTypeEnum transport = akiRpcConfig.getTransport();
+        if (transport == TransportTypeEnum.NIO) {
+            return false;
+        }
+        if (Epoll.isAvailable()) {
+            return true;
+        }
+        if (transport == TransportTypeEnum.EPOLL) {
+            log.warn("epoll 不可用，退回 NIO: {}", String.valueOf(Epoll.unavailabilityCause()));
+        }
+        return false;
+    }
+
+    /**
+     * 创建事件循环组
+     * @param epoll
+     * @param threads 线程数，0 表示使用 Netty 默认值（CPU核心数*2）
+     * @return
+     */
+    public static EventLoopGroup newEventLoopGroup(boolean epoll, int threads) {
+        return epoll ? new EpollEventLoopGroup(threads) : new NioEventLoopGroup(threads);
+    }
+
+    public static Class<? extends ServerChannel> serverChannelClass(boolean epoll) {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends SocketChannel> channelClass(boolean epoll) {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * 服务端：监听队列在父通道上设置，缓冲区、水位与分配器作用于每条已接入的连接
+     * 接收缓冲区同时设置在监听套接字上，超过 64KB 的窗口须在建连（握手）前生效
+     * @param bootstrap
+     * @param akiRpcConfig
+     */
+    public static void applyOptions(ServerBootstrap bootstrap, AkiRpcConfig akiRpcConfig) {
+        bootstrap.option(ChannelOption.SO_BACKLOG, akiRpcConfig.getBacklog())
+                .childOption(ChannelOption.ALLOCATOR, allocator(akiRpcConfig))
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark(akiRpcConfig));
+        if (akiRpcConfig.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, akiRpcConfig.getReceiveBufferSize())
+                    .childOption(ChannelOption.SO_RCVBUF, akiRpcConfig.getReceiveBufferSize());
+        }
+        if (akiRpcConfig.getSendBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, akiRpcConfig.getSendBufferSize());
+        }
+    }
+
+    /**
+     * 客户端：缓冲区、水位与分配器作用于每条连接
+     * @param bootstrap
+     * @param akiRpcConfig
+     */
+    public static void applyOptions(Bootstrap bootstrap, AkiRpcConfig akiRpcConfig) {
+        bootstrap.option(ChannelOption.ALLOCATOR, allocator(akiRpcConfig))
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark(akiRpcConfig));
+        if (akiRpcConfig.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, akiRpcConfig.getReceiveBufferSize());
+        }
+        if (akiRpcConfig.getSendBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, akiRpcConfig.getSendBufferSize());
+        }
+    }
+
+    private static ByteBufAllocator allocator(AkiRpcConfig akiRpcConfig) {
+        return akiRpcConfig.isPooledAllocator() ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
+    }
+
+    private static WriteBufferWaterMark waterMark(AkiRpcConfig akiRpcConfig) {
+        // 高水位不得低于低水位，配置有误时以低水位为准
+        int low = Math.max(0, akiRpcConfig.getWriteBufferLowWaterMark());
+        int high = Math.max(low, akiRpcConfig.getWriteBufferHighWaterMark());
+        return new WriteBufferWaterMark(low, high);
+    }
+}
@@ -1,4 +1,5 @@
 package com.aki.rpc.netty.client;
+import com.aki.rpc.config.AkiReferenceConfig;
 import com.aki.rpc.message.AkiRequest;
 
 /**
@@ -12,7 +13,16 @@ public interface AkiClient {
     /**
      * 发送请求，并接收数据
      * @param akiRequest
+     * @param akiReferenceConfig 服务引用方配置
      * @return
      */
-    Object sendRequest(AkiRequest akiRequest);
+    Object sendRequest(AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig);
+
+    /**
+     * 发起流式调用，返回按信用分批接收元素的接收端
+     * @param akiRequest
+     * @param akiReferenceConfig 服务引用方配置
+     * @return
+     */
+    StreamReceiver openStream(AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig);
 }
@@ -0,0 +1,228 @@
+package com.aki.rpc.netty.client;
+
+import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.netty.NettyTransport;
+import com.aki.rpc.netty.client.cache.ChannelCache;
+import com.aki.rpc.netty.client.cache.ChannelPool;
+import com.aki.rpc.netty.client.handler.AkiNettyClientHandler;
+import com.aki.rpc.netty.client.idle.ConnectionWatchdog;
+import com.aki.rpc.netty.codec.AkiRpcDecoder;
+import com.aki.rpc.netty.codec.AkiRpcEncoder;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Auther akizora
+ * 客户端连接管理：负责到各服务提供方地址的建连、断线重连与连接池维护
+ * - 共享的 Bootstrap 只保存公共配置，每次建连都 clone 一份并设置该目标自己的处理器，不再修改共享对象
+ * - 同一地址的并发建连共享连接池槽位中的 future，只会真正发起一次连接
+ * - 处理器（watchdog、编解码器等）只在真正建连时创建
+ * - 事件循环组与引导类在读取到 Rpc 配置后创建，按配置选择 epoll 或 NIO 传输
+ */
+@Slf4j
+public class ConnectionManager {
+
+    private AkiRpcConfig akiRpcConfig;
+    private volatile Bootstrap bootstrap;           // 公共配置的引导类，只读，建连时 clone 使用
+    private volatile EventLoopGroup eventLoopGroup; // 所有客户端连接共享的事件循环组
+    private final Timer timer;                      // 断线重连使用的时间轮
+    private final ChannelCache channelCache;        // 地址 - 连接池
+
+    public ConnectionManager(Timer timer) {
+        this.timer = timer;
+        this.channelCache = SingletonFactory.getInstance(ChannelCache.class);
+    }
+
+    public synchronized void setAkiRpcConfig(AkiRpcConfig akiRpcConfig) {
+        this.akiRpcConfig = akiRpcConfig;
+        if (bootstrap != null) {
+            return;
+        }
+        // 按配置选择传输层，Linux 上优先使用 epoll
+        boolean epoll = NettyTransport.useEpoll(akiRpcConfig);
+        eventLoopGroup = NettyTransport.newEventLoopGroup(epoll, Math.max(0, akiRpcConfig.getIoThreads()));
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(eventLoopGroup)
+                .channel(NettyTransport.channelClass(epoll))
+                //超时时间设置
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,5000);
+        // 连接缓冲区、写水位与分配器
+        NettyTransport.applyOptions(bootstrap, akiRpcConfig);
+        if (epoll) {
+            // 边缘触发读取；TCP_QUICKACK 关闭延迟确认，响应到达后立即确认
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .option(EpollChannelOption.TCP_QUICKACK, true);
+        }
+        this.bootstrap = bootstrap;
+    }
+
+    /**
+     * 从连接池中选出等待请求最少的连接；失效的槽位在后台补连，没有任何可用连接时等待连接建立
+     * @param inetSocketAddress
+     * @return
+     */
+    public Channel getChannel(InetSocketAddress inetSocketAddress) {
+        ChannelPool channelPool = getPool(inetSocketAddress);
+        Channel channel = channelPool.select();
+        CompletableFuture<Channel> connecting = fill(inetSocketAddress, channelPool);
+        if (channel != null) {
+            return channel;
+        }
+        if (connecting == null) {
+            throw new AkiRpcException("连接异常");
+        }
+        try {
+            return connecting.get();
+        } catch (Exception e) {
+            throw new AkiRpcException("连接netty服务失败:" + inetSocketAddress, e);
+        }
+    }
+
+    /**
+     * 当前线程是否为客户端的IO线程，IO线程中不能阻塞等待
+     * @return
+     */
+    public boolean inEventLoop() {
+        EventLoopGroup group = eventLoopGroup;
+        if (group == null) {
+            return false;
+        }
+        for (EventExecutor executor : group) {
+            if (executor.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 提前建立到指定地址的连接，首次调用无需等待建连
+     * @param inetSocketAddress
+     */
+    public void warmUp(InetSocketAddress inetSocketAddress) {
+        if (akiRpcConfig == null) {
+            return;
+        }
+        fill(inetSocketAddress, getPool(inetSocketAddress));
+    }
+
+    /**
+     * 服务提供方下线，移除并关闭到该地址的连接池，池中连接不再重连
+     * @param inetSocketAddress
+     */
+    public void release(InetSocketAddress inetSocketAddress) {
+        channelCache.remove(inetSocketAddress);
+        log.info("服务提供方已下线，关闭连接池:{}", inetSocketAddress);
+    }
+
+    private ChannelPool getPool(InetSocketAddress inetSocketAddress) {
+        return channelCache.getPool(inetSocketAddress, akiRpcConfig.getConnections());
+    }
+
+    private CompletableFuture<Channel> fill(InetSocketAddress inetSocketAddress, ChannelPool channelPool) {
+        return channelPool.fill((slot, channelFuture) -> connect(inetSocketAddress, channelPool, slot, channelFuture));
+    }
+
+    /**
+     * 为连接池的指定槽位建立连接
+     * @param inetSocketAddress
+     * @param channelPool
+     * @param slot
+     * @param channelCompletableFuture
+     */
+    private void connect(InetSocketAddress inetSocketAddress, ChannelPool channelPool, int slot, CompletableFuture<Channel> channelCompletableFuture) {
+        // 1. clone 出该目标专属的引导类，之后的重连也复用它
+        Bootstrap targetBootstrap = bootstrap.clone();
+
+        // 2. 创建一个 ConnectionWatchdog（连接监视器），断线后按指数退避重连，重连成功写回原槽位
+        ConnectionWatchdog watchdog = new ConnectionWatchdog(targetBootstrap, timer, inetSocketAddress, channelCompletableFuture, true) {
+
+            @Override
+            protected boolean reconnected(Channel channel) {
+                return channelPool.replace(slot, channel);
+            }
+
+            // 连接池已关闭（服务提供方下线或已被移除）时不再重连
+            @Override
+            protected boolean reconnectable() {
+                return !channelPool.isClosed();
+            }
+
+            /**
+             * 匿名重写CacheClearHandler.clear
+             * 池中已没有任何可用连接时移除并关闭连接池，下次调用该地址时重新建池；仍有其他可用连接时只放弃该槽位，由调用路径补连
+             * @param inetSocketAddress
+             */
+            @Override
+            public void clear(InetSocketAddress inetSocketAddress) {
+                if (channelPool.select() == null && channelCache.remove(inetSocketAddress, channelPool)) {
+                    log.info("超过最大限次未重连上，停止重连并关闭连接池:{}", inetSocketAddress);
+                } else {
+                    log.info("超过最大限次未重连上，停止重连，该槽位将在下次调用时重新建连:{}", inetSocketAddress);
+                }
+            }
+
+            /**
+             * 匿名重写
+             * @return
+             */
+            @Override
+            public ChannelHandler[] handlers() {
+                // 开启合并flush时置于watchdog之后、编码器之前，合并同一事件循环任务内的多次请求写出
+                if (akiRpcConfig.getFlushConsolidation() > 0) {
+                    return new ChannelHandler[]{
+                            this,
+                            new FlushConsolidationHandler(akiRpcConfig.getFlushConsolidation(), true),
+                            new IdleStateHandler(0, 3, 0, TimeUnit.SECONDS),
+                            new AkiRpcDecoder(),
+                            new AkiRpcEncoder(akiRpcConfig.getCompressThreshold()),
+                            new AkiNettyClientHandler()
+                    };
+                }
+                return new ChannelHandler[]{
+                        this,
+                        new IdleStateHandler(0, 3, 0, TimeUnit.SECONDS),
+                        new AkiRpcDecoder(),
+                        new AkiRpcEncoder(akiRpcConfig.getCompressThreshold()),
+                        new AkiNettyClientHandler()
+                };
+            }
+        };
+
+        // 3. 处理器只在连接真正建立（initChannel）时创建
+        targetBootstrap.handler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) throws Exception {
+                ch.pipeline().addLast(watchdog.handlers());
+            }
+        });
+
+        // 4. 发起连接
+        targetBootstrap.connect(inetSocketAddress).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                //连接是否完成
+                if (future.isSuccess()){
+                    channelCompletableFuture.complete(future.channel());
+                }else{
+                    channelCompletableFuture.completeExceptionally(future.cause());
+                    log.info("连接netty服务失败");
+                }
+            }
+        });
+    }
+}
@@ -1,40 +1,41 @@
 package com.aki.rpc.netty.client;
 
-import com.alibaba.nacos.api.naming.pojo.Instance;
-import com.alibaba.nacos.common.utils.RandomUtils;
+import com.aki.rpc.config.AkiReferenceConfig;
 import com.aki.rpc.config.AkiRpcConfig;
-import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.constant.LoadBalanceTypeEnum;
 import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.constant.ResponseCodeEnum;
 import com.aki.rpc.constant.SerializationTypeEnum;
 import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.exception.AkiRpcTimeoutException;
 import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.message.AkiHandshake;
 import com.aki.rpc.message.AkiMessage;
 import com.aki.rpc.message.AkiRequest;
 import com.aki.rpc.message.AkiResponse;
-import com.aki.rpc.netty.client.cache.ChannelCache;
-import com.aki.rpc.netty.client.handler.AkiNettyClientHandler;
 import com.aki.rpc.message.UnprocessedRequests;
-import com.aki.rpc.netty.client.idle.ConnectionWatchdog;
-import com.aki.rpc.netty.codec.AkiRpcDecoder;
-import com.aki.rpc.netty.codec.AkiRpcEncoder;
-import com.aki.rpc.register.nacos.NacosTemplate;
-import io.netty.bootstrap.Bootstrap;
+import com.aki.rpc.metrics.AkiAccessLog;
+import com.aki.rpc.metrics.AkiRpcMetrics;
+import com.aki.rpc.loadbalance.LoadBalancer;
+import com.aki.rpc.loadbalance.LoadBalancerRegistry;
+import com.aki.rpc.register.ProviderInstance;
+import com.aki.rpc.register.ProviderStats;
+import com.aki.rpc.register.ServiceDirectory;
+import com.aki.rpc.utils.RuntimeUtil;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.logging.LogLevel;
-import io.netty.handler.logging.LoggingHandler;
-import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.HashedWheelTimer;
-import lombok.SneakyThrows;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
-import java.util.Optional;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -45,35 +46,33 @@ import java.util.concurrent.TimeUnit;
 public class NettyClient implements AkiClient {
 
     private AkiRpcConfig akiRpcConfig;   // 用于存储与 RPC 配置相关的信息。
-    private final Bootstrap bootstrap;  // 用于配置和启动 Netty 客户端的引导类
-    private final EventLoopGroup eventLoopGroup;    // 用于处理 Netty 中的事件循环。事件循环组负责处理网络事件、IO操作等。
-    private final UnprocessedRequests unprocessedRequests;     //存储尚未处理的请求，用于异步响应返回，全局唯一
-    private final NacosTemplate nacosTemplate;      // Nacos工具类
+    private final ConnectionManager connectionManager;  // 连接管理，负责建连、重连与连接池
+    private final ServiceDirectory serviceDirectory;   // 服务目录，本地缓存的服务提供方快照
 
-    private final static Set<String> SERVICES = new CopyOnWriteArraySet<>();    // 用于存储Netty服务的 IP 地址和端口信息（ip,port）。CopyOnWriteArraySet 是线程安全的集合，适用于高并发场景。
     protected final HashedWheelTimer timer = new HashedWheelTimer();         // Netty 中的定时器类，使用分桶轮算法来处理定时任务，适用于定时任务的管理。
-    private final ChannelCache channelCache;            // 用于缓存 ip-Channel 对象
+    private final AkiRpcMetrics akiRpcMetrics;          // 调用统计（超时次数等）
+    private final AkiAccessLog akiAccessLog;            // 访问日志（默认关闭，异步采样写出）
+    private ExecutorService callbackExecutor;           // 异步调用的回调线程池，随 Rpc 配置一同初始化
 
     public NettyClient(){
-        this.channelCache = SingletonFactory.getInstance(ChannelCache.class);
-        this.unprocessedRequests = SingletonFactory.getInstance(UnprocessedRequests.class);
-        this.nacosTemplate = SingletonFactory.getInstance(NacosTemplate.class);
-        eventLoopGroup = new NioEventLoopGroup();
-        bootstrap = new Bootstrap();
-        bootstrap.group(eventLoopGroup)
-                .channel(NioSocketChannel.class)
-                .handler(new LoggingHandler(LogLevel.INFO))
-                //超时时间设置
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,5000);
+        this.connectionManager = new ConnectionManager(timer);
+        this.serviceDirectory = SingletonFactory.getInstance(ServiceDirectory.class);
+        this.akiRpcMetrics = SingletonFactory.getInstance(AkiRpcMetrics.class);
+        this.akiAccessLog = SingletonFactory.getInstance(AkiAccessLog.class);
+        // 服务目录中出现新的服务提供方时，提前建立连接
+        this.serviceDirectory.addListener(providerInstance -> connectionManager.warmUp(providerInstance.getAddress()));
+        // 服务提供方从服务目录中下线时，关闭到该地址的连接池
+        this.serviceDirectory.addRemovalListener(providerInstance -> connectionManager.release(providerInstance.getAddress()));
     }
 
     /**
      * 客户端发送请求并返回调用结果
      * @param akiRequest
+     * @param akiReferenceConfig
      * @return
      */
     @Override
-    public Object sendRequest(AkiRequest akiRequest) {
+    public Object sendRequest(AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig) {
 
         // 1. 判断是否已经配置了 Rpc 配置，如果没有则抛出异常
         if (akiRpcConfig == null){
@@ -83,167 +82,349 @@ public class NettyClient implements AkiClient {
         // 2. 创建 CompletableFuture封装异步响应体，用于异步返回请求结果
         CompletableFuture<AkiResponse<Object>> resultCompletableFuture = new CompletableFuture<>();
 
-        // 3. 连接 netty服务，获取到 channel（网络通道）
-        // 3.1 初始化服务地址和端口
-        InetSocketAddress inetSocketAddress = null;
-        String ipPort = null;
-
-        // 3.1 判断 SERVICES 是否为空（服务列表），如果不为空则随机选择一个服务地址
-        if (!SERVICES.isEmpty()){
-
-            int size = SERVICES.size();
-            // 使用随机的负载均衡算法获取服务地址
-            int nextInt = RandomUtils.nextInt(0, size - 1);
-            // 获取IP-PORT值
-            Optional<String> optional = SERVICES.stream().skip(nextInt).findFirst();
-            if (optional.isPresent()){
+        // 3. 选择服务提供方并发出请求，服务端过载拒绝时换实例重试
+        // 首次尝试与所有重试共享同一个截止时间，整个调用的耗时不超过一次超时时间
+        String serviceName = akiRequest.getInterfaceName() + akiRequest.getVersion();
+        long timeoutMillis = akiReferenceConfig.getTimeout() > 0 ? akiReferenceConfig.getTimeout() : akiRpcConfig.getTimeout();
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        send(akiRequest, akiReferenceConfig, serviceName, resultCompletableFuture, akiReferenceConfig.getRetries(), null, deadlineNanos);
+        return resultCompletableFuture;
+    }
 
-                ipPort = optional.get();
+    /**
+     * 发起一次流式调用：服务端按客户端授予的信用分批推送元素，调用方边消费边补充信用
+     * *流式调用不做过载重试（元素可能已被消费），服务端拒绝时接收端以异常结束
+     * *流的耗时取决于调用方的消费速度，不计入服务提供方的耗时统计
+     * @param akiRequest
+     * @param akiReferenceConfig
+     * @return
+     */
+    @Override
+    public StreamReceiver openStream(AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig) {
+        if (akiRpcConfig == null){
+            throw new AkiRpcException("必须启用Rpc相关配置！");
+        }
 
-                // 构造 InetSocketAddress 对象用于连接
-                new InetSocketAddress(ipPort.split(",")[0], Integer.parseInt(ipPort.split(",")[1]));
-                log.info("使用了本地缓存，省去了连接nacos的开销...");
-            }
+        // 1. 选择服务提供方并获取连接，与普通调用一致
+        String serviceName = akiRequest.getInterfaceName() + akiRequest.getVersion();
+        ProviderInstance[] providerInstances = serviceDirectory.getInstances(akiRpcConfig.getNacosGroup(), serviceName);
+        if (providerInstances.length == 0) {
+            throw new AkiRpcException("没有找到可用的服务提供方");
         }
-        // *dubbo-rpc ： 注册中心挂掉之后，服务调用还能否正常？ 回答 正常，第一次调用之后，缓存服务提供方的地址，直接发起调用
-        // 3.2 从 nacos 获取服务提供方的 ip 和端口，若Nacos宕机则依赖于3.1步骤的SERVICES本地缓存
-        Instance oneHealthyInstance = null;
-        try {
-            // 从Nacos中获取一个健康服务器实例，读取其地址/端口
-            oneHealthyInstance = nacosTemplate.getOneHealthyInstance(akiRpcConfig.getNacosGroup(),akiRequest.getInterfaceName() + akiRequest.getVersion());
-            inetSocketAddress = new InetSocketAddress(oneHealthyInstance.getIp(),oneHealthyInstance.getPort());
-            ipPort = oneHealthyInstance.getIp() + "," + oneHealthyInstance.getPort();
-            SERVICES.add(ipPort);
-        } catch (Exception e) {
-            log.error("获取nacos实例 出错:",e);
-            resultCompletableFuture.completeExceptionally(e);
-            return resultCompletableFuture;
+        LoadBalancer loadBalancer = LoadBalancerRegistry.get(akiReferenceConfig.getLoadBalance());
+        InetSocketAddress inetSocketAddress = loadBalancer.select(serviceName, providerInstances, akiRequest, akiReferenceConfig).getAddress();
+        Channel channel = connectionManager.getChannel(inetSocketAddress);
+        UnprocessedRequests unprocessedRequests = channel.attr(UnprocessedRequests.KEY).get();
+        if (!channel.isActive() || unprocessedRequests == null){
+            throw new AkiRpcException("连接异常");
         }
+        long timeoutMillis = akiReferenceConfig.getTimeout() > 0 ? akiReferenceConfig.getTimeout() : akiRpcConfig.getTimeout();
+        awaitCapacity(channel, unprocessedRequests, inetSocketAddress, timeoutMillis);
 
-        // 3.3 创建一个 CompletableFuture，用于异步获取 netty 服务的 channel
-        CompletableFuture<Channel> channelCompletableFuture = new CompletableFuture<>();
+        // 2. 构建请求与接收端，请求中携带初始信用（即接收端的窗口大小）
+        StreamReceiver streamReceiver = new StreamReceiver(channel, unprocessedRequests, akiReferenceConfig.getStreamWindow(), timeoutMillis);
+        AkiMessage akiMessage = AkiMessage.builder()
+                .codec(SerializationTypeEnum.PROTO_STUFF.getCode())
+                .compress(akiReferenceConfig.getCompress())
+                .messageType(MessageTypeEnum.REQUEST.getCode())
+                .data(compact(channel, akiRequest))
+                .build();
 
-        // 3.4 创建一个 ConnectionWatchdog（连接监视器），用于连接时监控状态
-        ConnectionWatchdog watchdog = new ConnectionWatchdog(bootstrap, timer, inetSocketAddress, channelCompletableFuture, true,channelCache) {
+        // 3. 访问日志在流结束（含取消）时记录
+        if (akiAccessLog.sample(akiReferenceConfig.getAccessLogSampleRate())) {
+            long startNanos = System.nanoTime();
+            streamReceiver.getEndFuture().whenComplete((akiResponse, throwable) ->
+                    akiAccessLog.record(AkiAccessLog.CONSUMER, serviceName, akiRequest.getMethodName(), inetSocketAddress,
+                            akiResponse == null || akiResponse.getCode() == null ? -1 : akiResponse.getCode(),
+                            System.nanoTime() - startNanos, throwable == null ? null : throwable.getClass().getSimpleName()));
+        }
 
-            /**
-             * 匿名重写CacheClearHandler.clear
-             * @param inetSocketAddress
-             */
-            @Override
-            public void clear(InetSocketAddress inetSocketAddress) {
-                SERVICES.remove(inetSocketAddress.getHostName()+","+inetSocketAddress.getPort());
-                log.info("超过最大限次未重连上，进行缓存清理...");
+        // 4. 在 EventLoop 中登记并写出
+        if (channel.eventLoop().inEventLoop()) {
+            writeStreamRequest(channel, unprocessedRequests, akiMessage, streamReceiver);
+        } else {
+            try {
+                channel.eventLoop().execute(() -> writeStreamRequest(channel, unprocessedRequests, akiMessage, streamReceiver));
+            } catch (RejectedExecutionException e) {
+                unprocessedRequests.release();
+                throw new AkiRpcException("连接异常", e);
             }
+        }
+        return streamReceiver;
+    }
 
-            /**
-             * 匿名重写
-             * @return
-             */
-            @Override
-            public ChannelHandler[] handlers() {
-                return new ChannelHandler[]{
-                        this,
-                        new IdleStateHandler(0, 3, 0, TimeUnit.SECONDS),
-                        new AkiRpcDecoder(),
-                        new AkiRpcEncoder(),
-                        new AkiNettyClientHandler()
-                };
-            }
-        };
+    /**
+     * 选择一个服务提供方发出一次请求
+     * @param akiRequest
+     * @param akiReferenceConfig
+     * @param serviceName
+     * @param resultCompletableFuture 最终返回给调用方的结果
+     * @param retries 剩余的过载重试次数
+     * @param tried 已尝试过的服务提供方，重试时排除
+     * @param deadlineNanos 整个调用（含重试）的截止时间，本次尝试只使用剩余的时间
+     */
+    private void send(AkiRequest akiRequest, AkiReferenceConfig akiReferenceConfig, String serviceName,
+                      CompletableFuture<AkiResponse<Object>> resultCompletableFuture, int retries, List<ProviderInstance> tried,
+                      long deadlineNanos) {
 
-        // 4. 将在watchdog缓存的处理器都导入启动依赖中。
-        // *每当一个新的网络连接建立时，这个方法都会被调用。
-        bootstrap.handler(new ChannelInitializer<SocketChannel>() {
-            @Override
-            protected void initChannel(SocketChannel ch) throws Exception {
-                ch.pipeline().addLast(watchdog.handlers());
-            }
-        });
+        // 1. 连接 netty服务，获取到 channel（网络通道）
+        // 1.1 从本地服务目录读取提供方快照，快照由 Nacos 推送维护，调用路径不访问注册中心
+        // *dubbo-rpc ： 注册中心挂掉之后，服务调用还能否正常？ 回答 正常，服务目录保留最后一份快照，直接发起调用
+        ProviderInstance[] providerInstances = exclude(serviceDirectory.getInstances(akiRpcConfig.getNacosGroup(), serviceName), tried);
+        if (providerInstances.length == 0) {
+            resultCompletableFuture.completeExceptionally(new AkiRpcException("没有找到可用的服务提供方"));
+            return;
+        }
 
-//        String finalIpPort = ipPort;
-//        bootstrap.connect(inetSocketAddress).addListener(new ChannelFutureListener() {
-//            @Override
-//            public void operationComplete(ChannelFuture future) throws Exception {
-//                //连接是否完成
-//                if (future.isSuccess()){
-//                    channelCompletableFuture.complete(future.channel());
-//                }else{
-//                    //从缓存当中进行剔除
-//                    SERVICES.remove(finalIpPort);
-//                    channelCompletableFuture.completeExceptionally(future.cause());
-//                    log.info("连接netty服务失败");
-//                }
-//            }
-//        });
-
-        // 5. 存入一个请求相关的异步任务
-        unprocessedRequests.put(akiRequest.getRequestId(),resultCompletableFuture);
-
-        // 6. 获取网络通道，传入目标网络地址和通道完成future
-        Channel channel = getChannel(inetSocketAddress,channelCompletableFuture);
-        if (!channel.isActive()){
+        // 1.2 按 @AkiReference 指定的负载均衡策略选择一个服务提供方
+        // *重试时实例列表已被过滤，轮询/一致性哈希等按快照缓存状态的策略不适用，改为按权重随机
+        LoadBalancer loadBalancer = LoadBalancerRegistry.get(tried == null
+                ? akiReferenceConfig.getLoadBalance() : LoadBalanceTypeEnum.RANDOM.getName());
+        ProviderInstance providerInstance = loadBalancer.select(serviceName, providerInstances, akiRequest, akiReferenceConfig);
+        InetSocketAddress inetSocketAddress = providerInstance.getAddress();
+
+        // 2. 从该地址的连接池中获取网络通道，没有可用连接时建立连接
+        Channel channel = connectionManager.getChannel(inetSocketAddress);
+        UnprocessedRequests unprocessedRequests = channel.attr(UnprocessedRequests.KEY).get();
+        if (!channel.isActive() || unprocessedRequests == null){
             throw new AkiRpcException("连接异常");
         }
 
-        // 7. 构建Aki消息体，包含以下信息：
+        // 2.1 本次尝试的超时时间为截止前剩余的时间（首次尝试即完整的超时时间）
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            akiRpcMetrics.incrementTimeout(serviceName);
+            resultCompletableFuture.completeExceptionally(new AkiRpcTimeoutException("调用超时: " + serviceName + "，重试前已无剩余时间"));
+            return;
+        }
+        long timeoutMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+
+        // 2.2 背压：连接写缓冲区超过高水位或等待响应的请求达到上限时，等待恢复或立即失败，不再无界写入
+        // 准入即预留等待名额，之后由登记的请求在完成、超时或写失败时归还
+        awaitCapacity(channel, unprocessedRequests, inetSocketAddress, timeoutMillis);
+
+        // 3. 构建Aki消息体，包含以下信息：
         // - 序列化方式（使用Protostuff）
-        // - 压缩类型（使用GZIP压缩）
+        // - 压缩类型（由@AkiReference指定，body 低于压缩阈值时编码器自动改为不压缩）
         // - 消息类型（请求类型）
-        // - 实际传输的数据（akiRequest）
+        // - 实际传输的数据（akiRequest；该连接已完成握手时只携带方法id与参数）
         AkiMessage akiMessage = AkiMessage.builder()
                 .codec(SerializationTypeEnum.PROTO_STUFF.getCode())
-                .compress(CompressTypeEnum.GZIP.getCode())
+                .compress(akiReferenceConfig.getCompress())
                 .messageType(MessageTypeEnum.REQUEST.getCode())
-                .data(akiRequest)
+                .data(compact(channel, akiRequest))
                 .build();
 
-        // 8. 将消息写入通道并立即刷新，添加通道future监听器
+        // 4. 本次请求的结果：不再重试时直接使用最终结果，否则收到过载响应后换实例重发
+        CompletableFuture<AkiResponse<Object>> attemptFuture = retries > 0 && providerInstances.length > 1
+                ? new CompletableFuture<>() : resultCompletableFuture;
+        if (attemptFuture != resultCompletableFuture) {
+            attemptFuture.whenComplete((akiResponse, throwable) -> {
+                if (throwable != null) {
+                    resultCompletableFuture.completeExceptionally(throwable);
+                } else if (isOverloaded(akiResponse) && deadlineNanos - System.nanoTime() > 0) {
+                    // 截止时间已过则不再重试，直接返回本次的过载响应
+                    // 重试可能需要建立新连接，不能阻塞当前 IO 线程，转交回调线程池
+                    List<ProviderInstance> excluded = tried == null ? new ArrayList<>() : tried;
+                    excluded.add(providerInstance);
+                    callbackExecutor.execute(() -> {
+                        try {
+                            send(akiRequest, akiReferenceConfig, serviceName, resultCompletableFuture, retries - 1, excluded, deadlineNanos);
+                        } catch (Throwable e) {
+                            resultCompletableFuture.completeExceptionally(e);
+                        }
+                    });
+                } else {
+                    resultCompletableFuture.complete(akiResponse);
+                }
+            });
+        }
+
+        // 5. 在 channel 所属的 EventLoop 中登记请求并写出：
+        // 本连接的等待表只在该线程访问，requestId 由其自增分配并写入帧头，响应按帧头 id 匹配
+        // 记录进行中调用数与响应耗时，供 leastactive/p2c 等策略使用
+        // 过载拒绝的响应很快，按超时时间计入耗时，使延迟感知的策略暂时避开该实例
+        ProviderStats providerStats = providerInstance.getStats();
+        long startNanos = System.nanoTime();
+        providerStats.begin();
+        // 访问日志在发出前完成采样判断，未采样的调用不再有额外开销
+        boolean sampled = akiAccessLog.sample(akiReferenceConfig.getAccessLogSampleRate());
+        attemptFuture.whenComplete((akiResponse, throwable) -> {
+            long latencyNanos = System.nanoTime() - startNanos;
+            providerStats.end(isOverloaded(akiResponse) ? TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : latencyNanos);
+            if (sampled) {
+                akiAccessLog.record(AkiAccessLog.CONSUMER, serviceName, akiRequest.getMethodName(), inetSocketAddress,
+                        akiResponse == null || akiResponse.getCode() == null ? -1 : akiResponse.getCode(), latencyNanos,
+                        throwable == null ? null : throwable.getClass().getSimpleName());
+            }
+        });
+        if (channel.eventLoop().inEventLoop()) {
+            writeRequest(channel, unprocessedRequests, akiMessage, attemptFuture, timeoutMillis, serviceName);
+        } else {
+            try {
+                channel.eventLoop().execute(() -> writeRequest(channel, unprocessedRequests, akiMessage, attemptFuture, timeoutMillis, serviceName));
+            } catch (RejectedExecutionException e) {
+                unprocessedRequests.release();
+                attemptFuture.completeExceptionally(new AkiRpcException("连接异常", e));
+            }
+        }
+    }
+
+    /**
+     * 为本次调用预留连接的等待名额，连接没有容量时按配置等待或立即失败；IO线程中不能阻塞，总是立即失败
+     * 名额在此原子预留，并发的调用方不会同时越过 maxPendingRequests
+     * 等待时间计入调用方感知的耗时，但不占用请求自身的超时时间
+     * @param channel
+     * @param unprocessedRequests
+     * @param inetSocketAddress
+     * @param timeoutMillis
+     */
+    private void awaitCapacity(Channel channel, UnprocessedRequests unprocessedRequests, InetSocketAddress inetSocketAddress, long timeoutMillis) {
+        int maxPending = akiRpcConfig.getMaxPendingRequests();
+        if (unprocessedRequests.tryReserve(channel, maxPending)) {
+            return;
+        }
+        if (akiRpcConfig.isBackpressureFailFast() || connectionManager.inEventLoop()) {
+            throw new AkiRpcException("连接写缓冲区已满或请求积压过多: " + inetSocketAddress);
+        }
+        try {
+            if (!unprocessedRequests.awaitReserve(channel, maxPending, TimeUnit.MILLISECONDS.toNanos(timeoutMillis))) {
+                throw new AkiRpcException("等待连接恢复可写超时(" + timeoutMillis + "ms): " + inetSocketAddress);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AkiRpcException("等待连接恢复可写时被中断", e);
+        }
+    }
+
+    private static boolean isOverloaded(AkiResponse<Object> akiResponse) {
+        return akiResponse != null && akiResponse.getCode() != null
+                && akiResponse.getCode() == ResponseCodeEnum.OVERLOADED.getCode();
+    }
+
+    /**
+     * 从服务提供方快照中排除已尝试过的实例
+     * @param providerInstances
+     * @param tried
+     * @return
+     */
+    private static ProviderInstance[] exclude(ProviderInstance[] providerInstances, List<ProviderInstance> tried) {
+        if (tried == null || tried.isEmpty()) {
+            return providerInstances;
+        }
+        List<ProviderInstance> remaining = new ArrayList<>(providerInstances.length);
+        for (ProviderInstance providerInstance : providerInstances) {
+            boolean excluded = false;
+            for (ProviderInstance triedInstance : tried) {
+                if (triedInstance.getKey().equals(providerInstance.getKey())) {
+                    excluded = true;
+                    break;
+                }
+            }
+            if (!excluded) {
+                remaining.add(providerInstance);
+            }
+        }
+        return remaining.toArray(new ProviderInstance[0]);
+    }
+
+    /**
+     * 连接已完成握手且服务端发布了该方法时，请求只保留方法id与参数，其余名称字段不再发送
+     * @param channel
+     * @param akiRequest
+     * @return
+     */
+    private AkiRequest compact(Channel channel, AkiRequest akiRequest) {
+        Map<String, Integer> methodIds = channel.attr(AkiHandshake.KEY).get();
+        if (methodIds == null || akiRequest.getMethodKey() == null) {
+            return akiRequest;
+        }
+        Integer methodId = methodIds.get(akiRequest.getMethodKey());
+        if (methodId == null) {
+            return akiRequest;
+        }
+        return AkiRequest.builder()
+                .methodId(methodId)
+                .parameters(akiRequest.getParameters())
+                .streamCredits(akiRequest.getStreamCredits())
+                .build();
+    }
+
+    /**
+     * 登记请求并写出，只允许在 channel 的 EventLoop 中调用；准入时已预留等待名额
+     * @param channel
+     * @param unprocessedRequests
+     * @param akiMessage
+     * @param resultCompletableFuture
+     * @param timeoutMillis
+     * @param serviceName
+     */
+    private void writeRequest(Channel channel, UnprocessedRequests unprocessedRequests, AkiMessage akiMessage,
+                              CompletableFuture<AkiResponse<Object>> resultCompletableFuture, long timeoutMillis, String serviceName) {
+        if (!channel.isActive()) {
+            unprocessedRequests.release();
+            resultCompletableFuture.completeExceptionally(new AkiRpcException("连接异常"));
+            return;
+        }
+        // 存入一个请求相关的异步任务，并将分配的 requestId 写入消息头
+        int requestId = unprocessedRequests.put(resultCompletableFuture);
+        akiMessage.setRequestId(requestId);
+
+        // 超时任务挂到时间轮上：到期时回到 EventLoop 移除等待项，并以超时异常结束请求
+        // 请求先行完成（响应、写失败、连接关闭）时取消超时任务，避免时间轮中堆积过期任务
+        Timeout timeout = timer.newTimeout(t -> channel.eventLoop().execute(() -> {
+            if (unprocessedRequests.remove(requestId) != null
+                    && resultCompletableFuture.completeExceptionally(new AkiRpcTimeoutException(
+                            "调用超时(" + timeoutMillis + "ms): " + serviceName + ", requestId=" + requestId))) {
+                akiRpcMetrics.incrementTimeout(serviceName);
+                log.warn("调用超时: {} requestId={} timeout={}ms", serviceName, requestId, timeoutMillis);
+            }
+        }), timeoutMillis, TimeUnit.MILLISECONDS);
+        resultCompletableFuture.whenComplete((akiResponse, throwable) -> timeout.cancel());
+
+        // 将消息写入通道并立即刷新，添加通道future监听器
         channel.writeAndFlush(akiMessage).addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture future) throws Exception {
-                if (future.isSuccess()){
-                    log.info("请求完成");
-                }else {
+                if (!future.isSuccess()){
                     log.error("发送请求数据失败");
                     // 关闭channel，resultCompletableFuture以异常方式完成，传播错误
+                    unprocessedRequests.remove(requestId);
                     future.channel().close();
                     resultCompletableFuture.completeExceptionally(future.cause());
                 }
             }
         });
-
-        return resultCompletableFuture;
     }
 
-    @SneakyThrows
-    private Channel getChannel(InetSocketAddress inetSocketAddress, CompletableFuture<Channel> channelCompletableFuture) {
-        Channel channel = channelCache.get(inetSocketAddress);
-        if (channel == null){
-            //进行连接...
-            doConnect(inetSocketAddress,channelCompletableFuture);
-            channel = channelCompletableFuture.get();
-            channelCache.set(inetSocketAddress,channel);
-            return channel;
-        }else{
-            log.info("channel是从缓存中获取的，性能进步一步做了提升...");
-            return channel;
+    /**
+     * 登记流式调用并写出请求，只允许在 channel 的 EventLoop 中调用
+     * @param channel
+     * @param unprocessedRequests
+     * @param akiMessage
+     * @param streamReceiver
+     */
+    private void writeStreamRequest(Channel channel, UnprocessedRequests unprocessedRequests, AkiMessage akiMessage,
+                                    StreamReceiver streamReceiver) {
+        if (!channel.isActive()) {
+            unprocessedRequests.release();
+            streamReceiver.fail(new AkiRpcException("连接异常"));
+            return;
         }
-    }
-
-    public void doConnect(InetSocketAddress inetSocketAddress, CompletableFuture<Channel> channelCompletableFuture){
-        bootstrap.connect(inetSocketAddress).addListener(new ChannelFutureListener() {
-            @Override
-            public void operationComplete(ChannelFuture future) throws Exception {
-                //连接是否完成
-                if (future.isSuccess()){
-                    channelCompletableFuture.complete(future.channel());
-                }else{
-                    //从缓存当中进行剔除
-                    SERVICES.remove(inetSocketAddress.getHostName()+","+inetSocketAddress.getPort());
-                    channelCompletableFuture.completeExceptionally(future.cause());
-                    log.info("连接netty服务失败");
-                }
+        // 调用方在请求发出前已关闭该流
+        if (streamReceiver.isClosed()) {
+            unprocessedRequests.release();
+            return;
+        }
+        int requestId = unprocessedRequests.putStream(streamReceiver);
+        streamReceiver.setRequestId(requestId);
+        akiMessage.setRequestId(requestId);
+        channel.writeAndFlush(akiMessage).addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                log.error("发送流式请求数据失败");
+                unprocessedRequests.removeStream(requestId);
+                future.channel().close();
+                streamReceiver.fail(future.cause());
             }
         });
     }
@@ -254,5 +435,21 @@ public class NettyClient implements AkiClient {
 
     public void setAkiRpcConfig(AkiRpcConfig akiRpcConfig) {
         this.akiRpcConfig = akiRpcConfig;
+        connectionManager.setAkiRpcConfig(akiRpcConfig);
+        if (callbackExecutor == null) {
+            int callbackThreads = akiRpcConfig.getCallbackThreads() > 0 ? akiRpcConfig.getCallbackThreads() : RuntimeUtil.cpus();
+            callbackExecutor = Executors.newFixedThreadPool(callbackThreads, new DefaultThreadFactory("aki-rpc-callback", true));
+        }
+    }
+
+    /**
+     * 异步调用完成 future 所使用的线程池
+     * @return
+     */
+    public ExecutorService getCallbackExecutor() {
+        if (callbackExecutor == null) {
+            throw new AkiRpcException("必须启用Rpc相关配置！");
+        }
+        return callbackExecutor;
     }
 }
@@ -0,0 +1,153 @@
+package com.aki.rpc.netty.client;
+
+import com.aki.rpc.exception.AkiRpcException;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @Auther akizora
+ * 返回 Flow.Publisher 的流式调用结果，订阅时才发起调用，只允许订阅一次
+ * 元素在回调线程池中按订阅者的 request(n) 投递，订阅者消费多少，接收端就向服务端补充多少信用
+ */
+public class StreamPublisher implements Flow.Publisher<Object> {
+
+    private final Supplier<StreamReceiver> opener;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public StreamPublisher(Supplier<StreamReceiver> opener, Executor executor) {
+        this.opener = opener;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(EmptySubscription.INSTANCE);
+            subscriber.onError(new AkiRpcException("流式调用结果只能订阅一次"));
+            return;
+        }
+        StreamReceiver streamReceiver;
+        try {
+            streamReceiver = opener.get();
+        } catch (Throwable e) {
+            subscriber.onSubscribe(EmptySubscription.INSTANCE);
+            subscriber.onError(e);
+            return;
+        }
+        StreamSubscription subscription = new StreamSubscription(subscriber, streamReceiver);
+        streamReceiver.setListener(subscription::schedule);
+        subscriber.onSubscribe(subscription);
+        // 设置回调之前可能已有数据到达或流已结束
+        subscription.schedule();
+    }
+
+    /**
+     * 单个订阅者的投递状态，投递任务同一时刻只有一个在运行
+     */
+    private final class StreamSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Object> subscriber;
+        private final StreamReceiver streamReceiver;
+
+        // 订阅者尚未满足的需求
+        private final AtomicLong demand = new AtomicLong();
+        // 待处理的投递信号数，非0时已有投递任务在运行或已提交
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done;
+
+        private StreamSubscription(Flow.Subscriber<? super Object> subscriber, StreamReceiver streamReceiver) {
+            this.subscriber = subscriber;
+            this.streamReceiver = streamReceiver;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("request 的数量必须大于0: " + n));
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            streamReceiver.close();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                terminate(e);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            for (;;) {
+                while (!done && demand.get() > 0) {
+                    Object item = streamReceiver.poll();
+                    if (item == null) {
+                        break;
+                    }
+                    demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(item);
+                    } catch (Throwable e) {
+                        terminate(e);
+                        return;
+                    }
+                }
+                if (!done && streamReceiver.isFinished()) {
+                    done = true;
+                    Throwable error = streamReceiver.getError();
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void terminate(Throwable cause) {
+            if (done) {
+                return;
+            }
+            cancel();
+            subscriber.onError(cause);
+        }
+    }
+
+    private enum EmptySubscription implements Flow.Subscription {
+        INSTANCE;
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
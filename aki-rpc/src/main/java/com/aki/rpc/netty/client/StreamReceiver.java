@@ -0,0 +1,313 @@
+package com.aki.rpc.netty.client;
+
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.constant.ResponseCodeEnum;
+import com.aki.rpc.constant.SerializationTypeEnum;
+import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.exception.AkiRpcTimeoutException;
+import com.aki.rpc.message.AkiMessage;
+import com.aki.rpc.message.AkiResponse;
+import com.aki.rpc.message.AkiStreamCredit;
+import com.aki.rpc.message.UnprocessedRequests;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @Auther akizora
+ * 客户端单次流式调用的接收端，登记在所属连接的 UnprocessedRequests 中
+ * - EventLoop 收到数据块后放入本地缓冲，调用方线程按需取出；服务端不会发送超出信用的元素，缓冲最多为一个信用窗口
+ * - 每消费半个窗口的元素即向服务端补充同等信用，调用方停止消费时服务端随之暂停
+ * - 作为 Iterator 阻塞迭代时，等待下一个元素超过调用超时时间抛出 AkiRpcTimeoutException 并取消该流
+ * - 提前关闭（close）时通知服务端取消，服务端停止生产并释放数据源；未消费完的流应当关闭
+ */
+public class StreamReceiver implements Iterator<Object>, AutoCloseable {
+
+    private final Channel channel;
+    private final UnprocessedRequests unprocessedRequests;
+    private final int window;
+    private final long timeoutMillis;
+
+    // 请求id，在 EventLoop 中登记时分配
+    private volatile int requestId;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    // 以下字段只在持有锁时访问
+    // 已到达、尚未消费的元素
+    private final Queue<Object> buffer = new ArrayDeque<>();
+    // 流已结束（正常结束、失败或取消），结束后缓冲中剩余的元素仍可取出
+    private boolean ended;
+    private boolean closed;
+    private Throwable error;
+    // 距上次补充信用以来消费的元素数
+    private int consumed;
+
+    // 流结束时完成：正常结束时携带服务端的结束响应，失败或取消时以异常完成
+    private final CompletableFuture<AkiResponse<Object>> endFuture = new CompletableFuture<>();
+
+    // 有新元素或流结束时的回调，在 EventLoop 中执行，Flow.Publisher 形式据此调度投递
+    private volatile Runnable listener;
+
+    public StreamReceiver(Channel channel, UnprocessedRequests unprocessedRequests, int window, long timeoutMillis) {
+        this.channel = channel;
+        this.unprocessedRequests = unprocessedRequests;
+        this.window = window;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 收到数据块，在 EventLoop 中调用
+     * @param items
+     */
+    public void onChunk(List<Object> items) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (ended) {
+                return;
+            }
+            buffer.addAll(items);
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        notifyListener();
+    }
+
+    /**
+     * 收到结束帧，在 EventLoop 中调用；服务端返回失败或过载拒绝时以异常结束
+     * @param akiResponse
+     */
+    public void onEnd(AkiResponse<Object> akiResponse) {
+        if (akiResponse == null || (akiResponse.getCode() != null && akiResponse.getCode() != ResponseCodeEnum.SUCCESS.getCode())) {
+            fail(new AkiRpcException("服务调用失败: " + (akiResponse == null ? null : akiResponse.getMessage())));
+            return;
+        }
+        lock.lock();
+        try {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        endFuture.complete(akiResponse);
+        notifyListener();
+    }
+
+    /**
+     * 以异常结束，如连接关闭、请求写出失败
+     * @param cause
+     */
+    public void fail(Throwable cause) {
+        lock.lock();
+        try {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            error = cause;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        endFuture.completeExceptionally(cause);
+        notifyListener();
+    }
+
+    @Override
+    public boolean hasNext() {
+        boolean timedOut = false;
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (buffer.isEmpty() && !ended) {
+                if (remaining <= 0) {
+                    timedOut = true;
+                    break;
+                }
+                try {
+                    remaining = available.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AkiRpcException("等待流式数据时被中断", e);
+                }
+            }
+            if (!buffer.isEmpty()) {
+                return true;
+            }
+            if (error != null) {
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                }
+                throw error instanceof Exception ? new AkiRpcException("流式调用失败", (Exception) error)
+                        : new AkiRpcException("流式调用失败: " + error);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (timedOut) {
+            close();
+            throw new AkiRpcTimeoutException("等待流式数据超时(" + timeoutMillis + "ms), requestId=" + requestId);
+        }
+        return false;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return poll();
+    }
+
+    /**
+     * 非阻塞地取出下一个元素，缓冲为空时返回null
+     * @return
+     */
+    public Object poll() {
+        Object item;
+        int grant = 0;
+        lock.lock();
+        try {
+            item = buffer.poll();
+            if (item == null) {
+                return null;
+            }
+            // 消费过半个窗口后补充信用，流已结束时不再补充
+            if (++consumed >= Math.max(1, window / 2) && !ended) {
+                grant = consumed;
+                consumed = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (grant > 0) {
+            sendCredit(grant, false);
+        }
+        return item;
+    }
+
+    /**
+     * 流已结束且缓冲中的元素已全部取出
+     * @return
+     */
+    public boolean isFinished() {
+        lock.lock();
+        try {
+            return ended && buffer.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 流失败的原因，正常结束或未结束时为null
+     * @return
+     */
+    public Throwable getError() {
+        lock.lock();
+        try {
+            return error;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 放弃剩余数据，流未结束时通知服务端取消
+     */
+    @Override
+    public void close() {
+        boolean cancel;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancel = !ended;
+            ended = true;
+            buffer.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (!cancel) {
+            return;
+        }
+        endFuture.completeExceptionally(new AkiRpcException("流式调用已被调用方取消"));
+        // 登记与取消都在 EventLoop 中执行：登记前关闭时请求不会发出，登记后关闭时移除并通知服务端
+        channel.eventLoop().execute(() -> {
+            if (unprocessedRequests.removeStream(requestId) != null) {
+                sendCredit(0, true);
+            }
+        });
+    }
+
+    private void sendCredit(int credits, boolean cancel) {
+        if (!channel.isActive()) {
+            return;
+        }
+        AkiMessage akiMessage = AkiMessage.builder()
+                .messageType(MessageTypeEnum.STREAM_CREDIT.getCode())
+                .codec(SerializationTypeEnum.PROTO_STUFF.getCode())
+                .compress(CompressTypeEnum.NONE.getCode())
+                .requestId(requestId)
+                .data(new AkiStreamCredit(credits, cancel))
+                .build();
+        channel.writeAndFlush(akiMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    private void notifyListener() {
+        Runnable current = listener;
+        if (current != null) {
+            current.run();
+        }
+    }
+
+    public void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    public void setRequestId(int requestId) {
+        this.requestId = requestId;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public CompletableFuture<AkiResponse<Object>> getEndFuture() {
+        return endFuture;
+    }
+}
@@ -0,0 +1,148 @@
+package com.aki.rpc.netty.client.cache;
+
+import com.aki.rpc.message.UnprocessedRequests;
+import io.netty.channel.Channel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @Auther akizora
+ * 单个服务提供方地址的连接池，固定若干个连接槽位
+ * 每个槽位存放该槽位连接的 future：未完成表示正在连接，异常完成表示连接失败
+ * 槽位通过 CAS 替换，并发调用方发现同一个失效槽位时只会有一方发起连接
+ * 关闭后不再发起连接，也不再接受重连写回
+ */
+public class ChannelPool {
+
+    /**
+     * 为指定槽位建立连接，连接结果写入 future
+     */
+    public interface Connector {
+        void connect(int slot, CompletableFuture<Channel> channelFuture);
+    }
+
+    private final AtomicReferenceArray<CompletableFuture<Channel>> slots;
+    private volatile boolean closed;
+
+    public ChannelPool(int connections) {
+        slots = new AtomicReferenceArray<>(Math.max(1, connections));
+    }
+
+    public int size() {
+        return slots.length();
+    }
+
+    /**
+     * 选出当前最合适的连接：优先可写的连接，其次等待中的请求数最少
+     * @return 没有活跃连接时返回 null
+     */
+    public Channel select() {
+        Channel selected = null;
+        boolean selectedWritable = false;
+        int selectedPending = Integer.MAX_VALUE;
+        for (int i = 0; i < slots.length(); i++) {
+            Channel channel = activeChannel(slots.get(i));
+            if (channel == null) {
+                continue;
+            }
+            boolean writable = channel.isWritable();
+            int pending = pending(channel);
+            if (selected == null
+                    || (writable && !selectedWritable)
+                    || (writable == selectedWritable && pending < selectedPending)) {
+                selected = channel;
+                selectedWritable = writable;
+                selectedPending = pending;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 为所有空闲、连接失败或已断开的槽位发起连接
+     * @param connector
+     * @return 任意一个正在进行中的连接，没有时返回 null
+     */
+    public CompletableFuture<Channel> fill(Connector connector) {
+        CompletableFuture<Channel> connecting = null;
+        for (int i = 0; i < slots.length(); i++) {
+            if (closed) {
+                return null;
+            }
+            CompletableFuture<Channel> current = slots.get(i);
+            if (needConnect(current)) {
+                CompletableFuture<Channel> channelFuture = new CompletableFuture<>();
+                if (slots.compareAndSet(i, current, channelFuture)) {
+                    // 与 close 并发时撤回刚占用的槽位
+                    if (closed) {
+                        slots.compareAndSet(i, channelFuture, null);
+                        return null;
+                    }
+                    connector.connect(i, channelFuture);
+                }
+                current = slots.get(i);
+            }
+            if (connecting == null && current != null && !current.isDone()) {
+                connecting = current;
+            }
+        }
+        return connecting;
+    }
+
+    /**
+     * 断线重连成功后写回槽位；若槽位已被新的活跃连接占用或连接池已关闭则放弃
+     * @param slot
+     * @param channel
+     * @return 是否写入成功
+     */
+    public boolean replace(int slot, Channel channel) {
+        CompletableFuture<Channel> current = slots.get(slot);
+        if (closed || activeChannel(current) != null || (current != null && !current.isDone())) {
+            return false;
+        }
+        CompletableFuture<Channel> replacement = CompletableFuture.completedFuture(channel);
+        if (!slots.compareAndSet(slot, current, replacement)) {
+            return false;
+        }
+        // 与 close 并发时撤回，由调用方关闭新连接
+        return !closed || !slots.compareAndSet(slot, replacement, null);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 关闭池中的所有连接，之后不再建连
+     */
+    public void close() {
+        closed = true;
+        for (int i = 0; i < slots.length(); i++) {
+            Channel channel = activeChannel(slots.getAndSet(i, null));
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    private static boolean needConnect(CompletableFuture<Channel> channelFuture) {
+        if (channelFuture == null || channelFuture.isCompletedExceptionally()) {
+            return true;
+        }
+        return channelFuture.isDone() && !channelFuture.join().isActive();
+    }
+
+    private static Channel activeChannel(CompletableFuture<Channel> channelFuture) {
+        if (channelFuture == null || !channelFuture.isDone() || channelFuture.isCompletedExceptionally()) {
+            return null;
+        }
+        Channel channel = channelFuture.join();
+        return channel.isActive() ? channel : null;
+    }
+
+    private static int pending(Channel channel) {
+        UnprocessedRequests unprocessedRequests = channel.attr(UnprocessedRequests.KEY).get();
+        return unprocessedRequests == null ? 0 : unprocessedRequests.size();
+    }
+}
@@ -4,10 +4,13 @@ import com.aki.rpc.constant.CompressTypeEnum;
 import com.aki.rpc.constant.MessageTypeEnum;
 import com.aki.rpc.constant.AkiRpcConstants;
 import com.aki.rpc.constant.SerializationTypeEnum;
-import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.message.AkiHandshake;
 import com.aki.rpc.message.AkiMessage;
 import com.aki.rpc.message.AkiResponse;
+import com.aki.rpc.message.AkiStreamChunk;
 import com.aki.rpc.message.UnprocessedRequests;
+import com.aki.rpc.netty.client.StreamReceiver;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -16,13 +19,30 @@ import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collections;
+import java.util.Map;
+
 @Slf4j
 public class AkiNettyClientHandler extends ChannelInboundHandlerAdapter {
-    private UnprocessedRequests unprocessedRequests;
+    // 本连接上等待响应的请求，每个 channel 一份
+    private final UnprocessedRequests unprocessedRequests;
 
     public AkiNettyClientHandler(){
-        unprocessedRequests = SingletonFactory.getInstance(UnprocessedRequests.class);
+        unprocessedRequests = new UnprocessedRequests();
+    }
+
+    /**
+     * 加入 pipeline 时将本连接的等待表绑定到 channel 属性，供发送端与解码器按帧头 requestId 查找
+     * @param ctx
+     */
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        ctx.channel().attr(UnprocessedRequests.KEY).set(unprocessedRequests);
+        // 连接关闭后等待中的请求不会再有响应，统一以异常结束
+        ctx.channel().closeFuture().addListener(future ->
+                unprocessedRequests.failAll(new AkiRpcException("连接已关闭，请求未得到响应")));
     }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         try {
@@ -32,7 +52,26 @@ public class AkiNettyClientHandler extends ChannelInboundHandlerAdapter {
                 Object data = akiMessage.getData();
                 if (MessageTypeEnum.RESPONSE.getCode() == akiMessage.getMessageType()) {
                     AkiResponse akiResponse = (AkiResponse) data;
-                    unprocessedRequests.complete(akiResponse);
+                    unprocessedRequests.complete(akiMessage.getRequestId(), akiResponse);
+                }
+                // 流式响应：数据块交给对应的接收端，结束帧到达后移除该流
+                if (MessageTypeEnum.STREAM_CHUNK.getCode() == akiMessage.getMessageType() && data != null) {
+                    StreamReceiver streamReceiver = unprocessedRequests.getStream(akiMessage.getRequestId());
+                    if (streamReceiver != null) {
+                        streamReceiver.onChunk(((AkiStreamChunk) data).getItems());
+                    }
+                }
+                if (MessageTypeEnum.STREAM_END.getCode() == akiMessage.getMessageType()) {
+                    StreamReceiver streamReceiver = unprocessedRequests.removeStream(akiMessage.getRequestId());
+                    if (streamReceiver != null) {
+                        streamReceiver.onEnd((AkiResponse) data);
+                    }
+                }
+                if (MessageTypeEnum.HANDSHAKE_RESPONSE.getCode() == akiMessage.getMessageType() && data != null) {
+                    // 握手完成，方法id映射绑定到本连接，之后的请求只携带方法id
+                    Map<String, Integer> methodIds = ((AkiHandshake) data).getMethodIds();
+                    ctx.channel().attr(AkiHandshake.KEY).set(methodIds == null ? Collections.emptyMap() : methodIds);
+                    log.info("连接握手完成，可用方法数:{}", methodIds == null ? 0 : methodIds.size());
                 }
                 //
             }
@@ -49,11 +88,11 @@ public class AkiNettyClientHandler extends ChannelInboundHandlerAdapter {
        if (evt instanceof IdleStateEvent){
            IdleStateEvent stateEvent = (IdleStateEvent) evt;
            if (stateEvent.state() == IdleState.WRITER_IDLE){
-               log.info("客户端发送了心跳包...");
+               log.debug("客户端发送了心跳包...");
                //进行心跳检测，发送一个心跳包去服务端
                AkiMessage akiMessage = AkiMessage.builder()
                        .messageType(MessageTypeEnum.HEARTBEAT_PING.getCode())
-                       .compress(CompressTypeEnum.GZIP.getCode())
+                       .compress(CompressTypeEnum.NONE.getCode())
                        .codec(SerializationTypeEnum.PROTO_STUFF.getCode())
                        .data(AkiRpcConstants.HEART_PING)
                        .build();
@@ -68,9 +107,28 @@ public class AkiNettyClientHandler extends ChannelInboundHandlerAdapter {
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         super.channelActive(ctx);
         log.info("客户端连接上了...连接正常");
+        // 发起连接握手，获取服务端的方法id；握手完成前的请求仍按名称调用
+        AkiMessage akiMessage = AkiMessage.builder()
+                .messageType(MessageTypeEnum.HANDSHAKE_REQUEST.getCode())
+                .compress(CompressTypeEnum.NONE.getCode())
+                .codec(SerializationTypeEnum.PROTO_STUFF.getCode())
+                .data(new AkiHandshake())
+                .build();
+        ctx.channel().writeAndFlush(akiMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
         ctx.fireChannelActive();
     }
 
+    /**
+     * 写缓冲区回落到低水位以下（或超过高水位）时，唤醒因背压等待的调用方重新判断
+     * @param ctx
+     * @throws Exception
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        unprocessedRequests.signalCapacity();
+        ctx.fireChannelWritabilityChanged();
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         //如果触发了这个方法 代表服务端 关闭连接了
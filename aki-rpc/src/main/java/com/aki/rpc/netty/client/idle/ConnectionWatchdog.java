@@ -1,9 +1,7 @@
 package com.aki.rpc.netty.client.idle;
 
-import com.aki.rpc.netty.client.cache.ChannelCache;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.socket.SocketChannel;
 import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import io.netty.util.TimerTask;
@@ -25,17 +23,30 @@ public abstract class ConnectionWatchdog extends ChannelInboundHandlerAdapter
     private int attempts;                       // 重连尝试次数
     private final int attemptsMax = 12;         // 重连尝试最大次数
     private final CompletableFuture<Channel> completableFuture;         // 用于异步获取连接通道的CompletableFuture
-    private final  ChannelCache channelCache;    // 通道缓存，单例使用，使用client
     public ConnectionWatchdog(Bootstrap bootstrap, Timer timer,
                               InetSocketAddress inetSocketAddress,
                               CompletableFuture<Channel> channelCompletableFuture,
-                              boolean reconnect, ChannelCache channelCache){
+                              boolean reconnect){
         this.bootstrap = bootstrap;
         this.timer = timer;
         this.inetSocketAddress = inetSocketAddress;
         this.reconnect = reconnect;
         this.completableFuture = channelCompletableFuture;
-        this.channelCache = channelCache;
+    }
+
+    /**
+     * 重连成功后回调，由子类将新连接写回连接池
+     * @param channel 重连得到的新连接
+     * @return false 表示该连接已不再需要（已有其他连接顶替），此时关闭新连接并停止重连
+     */
+    protected abstract boolean reconnected(Channel channel);
+
+    /**
+     * 是否仍需要重连，由子类判断所属连接池是否已关闭
+     * @return false 表示连接已被主动废弃，断线后不再重连
+     */
+    protected boolean reconnectable() {
+        return true;
     }
 
     /**
@@ -66,7 +77,11 @@ public abstract class ConnectionWatchdog extends ChannelInboundHandlerAdapter
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         log.info("链接关闭");
 
-        //代表未连接，此时应该发生重试策略
+        //代表未连接，此时应该发生重试策略；所属连接池已关闭时不再重连
+        if (reconnect && !reconnectable()){
+            reconnect = false;
+            log.info("连接已被废弃，不再重连:{}", inetSocketAddress);
+        }
         if (reconnect){
             log.info("链接关闭，将进行重连");
             // 默认最大重试次数为12次
@@ -94,31 +109,24 @@ public abstract class ConnectionWatchdog extends ChannelInboundHandlerAdapter
      */
     @Override
     public void run(Timeout timeout) throws Exception {
-        ChannelFuture future = null;
-
-        // 1.   同步访问bootstrap，防止并发修改
-        // 使用synchronized确保在多线程环境下安全地配置和创建连接
-        synchronized (bootstrap) {
-            // 2. 重新配置通道初始化器
-            // 为每次重连都重新设置一次处理器管道
-            bootstrap.handler(new ChannelInitializer<SocketChannel>() {
-                @Override
-                protected void initChannel(SocketChannel ch) throws Exception {
-                    ch.pipeline().addLast(handlers());
-                }
-            });
-            // 4. 尝试连接目标地址
-             future = bootstrap.connect(inetSocketAddress);
+        // 等待期间连接池被关闭，放弃本次重连
+        if (!reconnectable()) {
+            return;
         }
+        // 1. bootstrap 为该目标专属的引导类（由 ConnectionManager clone 并设置好处理器），直接发起重连即可
+        ChannelFuture future = bootstrap.connect(inetSocketAddress);
 
-        // 5.异步监听，尝试重连...
+        // 2.异步监听，尝试重连...
         future.addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture future) throws Exception {
                 if (future.isSuccess()){
                     //重连成功
                     completableFuture.complete(future.channel());
-                    channelCache.set(inetSocketAddress,future.channel());
+                    if (!reconnected(future.channel())) {
+                        reconnect = false;
+                        future.channel().close();
+                    }
                 }else{
                     //重连失败，放行
                     future.channel().pipeline().fireChannelInactive();
@@ -4,19 +4,20 @@ import com.aki.rpc.compress.Compress;
 import com.aki.rpc.constant.CompressTypeEnum;
 import com.aki.rpc.constant.MessageTypeEnum;
 import com.aki.rpc.constant.AkiRpcConstants;
-import com.aki.rpc.constant.SerializationTypeEnum;
 import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.message.AkiHandshake;
 import com.aki.rpc.message.AkiMessage;
 import com.aki.rpc.message.AkiRequest;
 import com.aki.rpc.message.AkiResponse;
+import com.aki.rpc.message.AkiStreamChunk;
+import com.aki.rpc.message.AkiStreamCredit;
+import com.aki.rpc.message.UnprocessedRequests;
 import com.aki.rpc.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ServiceLoader;
-
 /**
  * @Auther akizora
  * 消息解码器
@@ -41,7 +42,7 @@ public class AkiRpcDecoder extends LengthFieldBasedFrameDecoder {
 
 
     public AkiRpcDecoder(){
-        this(8 * 1024 * 1024,5,4,-9,0);
+        this(AkiRpcConstants.MAX_FRAME_LENGTH,5,4,-9,0);
     }
 
     /**
@@ -74,14 +75,19 @@ public class AkiRpcDecoder extends LengthFieldBasedFrameDecoder {
             // 3.将解码结果强制转换为 ByteBuf（Netty 的字节缓冲区）。
             ByteBuf frame = (ByteBuf) decode;
 
-            // 4.判定长度是否合标
-            int length = frame.readableBytes();
-            if (length < AkiRpcConstants.TOTAL_LENGTH){
-                throw new AkiRpcException("数据长度不符");
+            try {
+                // 4.判定长度是否合标
+                int length = frame.readableBytes();
+                if (length < AkiRpcConstants.TOTAL_LENGTH){
+                    throw new AkiRpcException("数据长度不符");
+                }
+
+                // 5.进入解码环节
+                return decodeFrame(ctx, frame);
+            } finally {
+                // 父类切出的帧为 retainedSlice，解码完成后须释放
+                frame.release();
             }
-
-            // 5.进入解码环节
-            return decodeFrame(frame);
         }
         return decode;
     }
@@ -94,7 +100,7 @@ public class AkiRpcDecoder extends LengthFieldBasedFrameDecoder {
     //6. 1B compress（压缩类型）
     //7. 4B  requestId（请求的Id）
     //8. body（object类型数据）
-    private Object decodeFrame(ByteBuf frame) {
+    private Object decodeFrame(ChannelHandlerContext ctx, ByteBuf frame) {
         //1.按顺序进行读取
         //1.1. 检测魔法数
         checkMagicCode(frame);
@@ -128,85 +134,67 @@ public class AkiRpcDecoder extends LengthFieldBasedFrameDecoder {
                 .requestId(requestId)
                 .build();
 
-        // 3. 解压缩数据体
-        if (dataLength > 0){
-            //3.1.有数据,读取body的数据
-            byte[] bodyData = new byte[dataLength];
-            frame.readBytes(bodyData);
-
-            // 3.2.解压缩并反序列化为AkiRequest
-            // 3.2.1 通过SPI机制获取指定压缩实现类
-            Compress compress = loadCompress(compressType);
-            bodyData = compress.decompress(bodyData);
-
-            // 3.2.2 反序列化为Serializer类型，后期强转为指定类
-            Serializer serializer = loadSerializer(codec);
-
-            //客户端-请求数据  服务端-响应数据  根据不同类型按不同的类反序列化
-            //AkiRequest  AkiResponse
-            if (MessageTypeEnum.REQUEST.getCode() == messageType){
-                AkiRequest akiRequest = (AkiRequest) serializer.deserialize(bodyData, AkiRequest.class);
-                akiMessage.setData(akiRequest);
-            }
-            if (MessageTypeEnum.RESPONSE.getCode() == messageType){
-                AkiResponse akiResponse = (AkiResponse) serializer.deserialize(bodyData, AkiResponse.class);
-                akiMessage.setData(akiResponse);
+        // 2.1 客户端按帧头 requestId 匹配等待中的请求，已超时/已完成的响应直接丢弃，不再反序列化 body
+        if (MessageTypeEnum.RESPONSE.getCode() == messageType){
+            UnprocessedRequests unprocessedRequests = ctx.channel().attr(UnprocessedRequests.KEY).get();
+            if (unprocessedRequests != null && !unprocessedRequests.contains(requestId)){
+                return null;
             }
-
         }
-        return akiMessage;
-    }
-
-    /**
-     * SPI动态获取实现的序列化器类
-     * @param codec
-     * @return
-     */
-    private Serializer loadSerializer(byte codec) {
-        // 1. 根据压缩类型枚举值，获取对应的序列化类型名称
-        String name = SerializationTypeEnum.getName(codec);
-        log.info("SPI: 解码类型为"+name);
-        /*
-          2. 使用Java SPI(Service Provider Interface)机制加载所有Compress接口的实现类
-          定义服务接口的实现列表：META-INF/services 文件是实现类的注册表，告诉 Java 系统有哪些实现可用。
-          动态加载实现类：ServiceLoader 在运行时会扫描这个目录，根据配置文件动态加载实现类，从而实现解耦和动态扩展。
-         */
-        ServiceLoader<Serializer> load = ServiceLoader.load(Serializer.class);
-
-        // 3. 返回指定压缩类：属性name匹配于name值的序列化类
-        for (Serializer serializer : load){
-            if (serializer.name().equals(name)){
-                return serializer;
+        // 2.2 流式响应同理：客户端已关闭或已结束的流，后续数据块直接丢弃
+        if (MessageTypeEnum.STREAM_CHUNK.getCode() == messageType || MessageTypeEnum.STREAM_END.getCode() == messageType){
+            UnprocessedRequests unprocessedRequests = ctx.channel().attr(UnprocessedRequests.KEY).get();
+            if (unprocessedRequests != null && unprocessedRequests.getStream(requestId) == null){
+                return null;
             }
         }
-        throw new AkiRpcException("无对应的序列化类型");
-    }
 
-
-    /**
-     * SPI动态获取实现的压缩器类
-     * @param compressType
-     * @return
-     */
-    private Compress loadCompress(byte compressType) {
-        // 1. 根据压缩类型枚举值，获取对应的压缩类型名称
-        String name = CompressTypeEnum.getName(compressType);
-        log.info("SPI: 解压缩类型为"+name);
-
-        /*
-          2. 使用Java SPI(Service Provider Interface)机制加载所有Compress接口的实现类
-          定义服务接口的实现列表：META-INF/services 文件是实现类的注册表，告诉 Java 系统有哪些实现可用。
-          动态加载实现类：ServiceLoader 在运行时会扫描这个目录，根据配置文件动态加载实现类，从而实现解耦和动态扩展。
-         */
-        ServiceLoader<Compress> load = ServiceLoader.load(Compress.class);
-
-        // 3. 返回指定压缩类：属性name匹配于name值的压缩类
-        for (Compress compress : load){
-            if (compress.name().equals(name)){
-                    return compress;
+        // 3. 解压缩数据体
+        if (dataLength > 0){
+            // 3.1.有数据,body 即帧内剩余的可读字节，直接在帧上读取，不再拷贝出 byte[]
+            ByteBuf body = frame;
+            ByteBuf decompressed = null;
+            try {
+                // 3.2.解压缩并反序列化为AkiRequest
+                // 3.2.1 未压缩的帧直接在帧上反序列化；否则从编解码注册表获取指定压缩实现类，解压至池化缓冲区
+                if (compressType != CompressTypeEnum.NONE.getCode()) {
+                    Compress compress = CodecRegistry.getCompress(compressType);
+                    decompressed = ctx.alloc().ioBuffer(dataLength);
+                    compress.decompress(frame, decompressed);
+                    body = decompressed;
+                }
+
+                // 3.2.2 反序列化为Serializer类型，后期强转为指定类
+                Serializer serializer = CodecRegistry.getSerializer(codec);
+
+                //客户端-请求数据  服务端-响应数据  根据不同类型按不同的类反序列化
+                //AkiRequest  AkiResponse
+                if (MessageTypeEnum.REQUEST.getCode() == messageType){
+                    AkiRequest akiRequest = (AkiRequest) serializer.deserialize(body, AkiRequest.class);
+                    akiMessage.setData(akiRequest);
+                }
+                if (MessageTypeEnum.RESPONSE.getCode() == messageType
+                        || MessageTypeEnum.STREAM_END.getCode() == messageType){
+                    AkiResponse akiResponse = (AkiResponse) serializer.deserialize(body, AkiResponse.class);
+                    akiMessage.setData(akiResponse);
+                }
+                if (MessageTypeEnum.STREAM_CHUNK.getCode() == messageType){
+                    akiMessage.setData(serializer.deserialize(body, AkiStreamChunk.class));
+                }
+                if (MessageTypeEnum.STREAM_CREDIT.getCode() == messageType){
+                    akiMessage.setData(serializer.deserialize(body, AkiStreamCredit.class));
+                }
+                if (MessageTypeEnum.HANDSHAKE_REQUEST.getCode() == messageType
+                        || MessageTypeEnum.HANDSHAKE_RESPONSE.getCode() == messageType){
+                    akiMessage.setData(serializer.deserialize(body, AkiHandshake.class));
+                }
+            } finally {
+                if (decompressed != null) {
+                    decompressed.release();
+                }
             }
         }
-        throw new AkiRpcException("无对应的压缩类型");
+        return akiMessage;
     }
 
     /**
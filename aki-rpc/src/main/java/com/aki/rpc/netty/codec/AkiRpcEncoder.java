@@ -1,10 +1,8 @@
 package com.aki.rpc.netty.codec;
 
 import com.aki.rpc.compress.Compress;
-import com.aki.rpc.constant.CompressTypeEnum;
 import com.aki.rpc.constant.AkiRpcConstants;
-import com.aki.rpc.constant.SerializationTypeEnum;
-import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.constant.CompressTypeEnum;
 import com.aki.rpc.message.AkiMessage;
 import com.aki.rpc.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
@@ -12,9 +10,6 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ServiceLoader;
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
  * @Auther
  * 消息编码器
@@ -22,7 +17,19 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Slf4j
 public class AkiRpcEncoder extends MessageToByteEncoder<AkiMessage> {
 
-    private static final AtomicInteger ATOMIC_INTEGER = new AtomicInteger(0);
+    // 帧头中 compress 字段的偏移量：4B magic + 1B version + 4B length + 1B type + 1B codec
+    private static final int COMPRESS_OFFSET = 11;
+
+    // 压缩阈值，序列化后的 body 小于该值时不压缩
+    private final int compressThreshold;
+
+    public AkiRpcEncoder(){
+        this(AkiRpcConstants.COMPRESS_THRESHOLD);
+    }
+
+    public AkiRpcEncoder(int compressThreshold){
+        this.compressThreshold = compressThreshold;
+    }
 
     //1. 4B magic code（魔法数）
     //2. 1B version（版本）
@@ -37,6 +44,7 @@ public class AkiRpcEncoder extends MessageToByteEncoder<AkiMessage> {
                           AkiMessage akiMessage,
                           ByteBuf out) throws Exception {
         // 1.获取message进行编码处理
+        int frameStart = out.writerIndex();
         out.writeBytes(AkiRpcConstants.MAGIC_NUMBER);       // 4B magic code（魔法数）
         out.writeByte(AkiRpcConstants.VERSION);             // 1B version（版本）
         out.writerIndex(out.writerIndex() + 4);          // *4B full length（消息长度） 预留后期填充
@@ -44,64 +52,39 @@ public class AkiRpcEncoder extends MessageToByteEncoder<AkiMessage> {
         //序列化 先进行序列化 在进行压缩
         out.writeByte(akiMessage.getCodec());               // 1B codec（序列化类型）
         out.writeByte(akiMessage.getCompress());            // 1B compress（压缩类型）
-        out.writeInt(ATOMIC_INTEGER.getAndIncrement());     // 4B requestId（请求的Id）
+        out.writeInt(akiMessage.getRequestId());            // 4B requestId（请求的Id）
         Object data = akiMessage.getData();                 // 不定长 body（object类型数据）
 
-        // 2. 归纳未填充的值
-        // 2.1 header 长度为 16
-        int fullLength = AkiRpcConstants.HEAD_LENGTH;
-
-        // 2.2 序列化body数据
-        Serializer serializer = loadSerializer(akiMessage.getCodec());
-        byte[] bodyBytes = serializer.serialize(data);
+        // 2. 序列化body数据，直接写入出站缓冲区
+        Serializer serializer = CodecRegistry.getSerializer(akiMessage.getCodec());
+        int bodyStart = out.writerIndex();
+        serializer.serialize(data, out);
 
-        // 2.3 压缩body的序列化值
-        Compress compress = loadCompress(akiMessage.getCompress());
-        bodyBytes = compress.compress(bodyBytes);
-
-        // 2.4 增添body长度，计算帧总长
-        fullLength += bodyBytes.length;
-
-        // 2.5 填入full length
-        out.writeBytes(bodyBytes);
-        int writerIndex = out.writerIndex();
-        //将fullLength写入之前的预留的位置
-        out.writerIndex(writerIndex - fullLength + AkiRpcConstants.MAGIC_NUMBER.length + 1);
-        out.writeInt(fullLength);
-        out.writerIndex(writerIndex);
-    }
-
-    /**
-     * SPI动态获取实现的序列化器类
-     * @param codec
-     * @return
-     */
-    private Serializer loadSerializer(byte codec) {
-        String name = SerializationTypeEnum.getName(codec);
-        log.info("SPI: 编码类型为"+name);
-        ServiceLoader<Serializer> load = ServiceLoader.load(Serializer.class);
-        for (Serializer serializer : load){
-            if (serializer.name().equals(name)){
-                return serializer;
+        // 3. 自适应压缩：仅当指定了压缩类型且 body 达到阈值时才压缩，否则将帧头压缩类型改写为 NONE
+        int bodyLength = out.writerIndex() - bodyStart;
+        byte compressType = akiMessage.getCompress();
+        boolean compressedBody = false;
+        if (compressType != CompressTypeEnum.NONE.getCode() && bodyLength >= compressThreshold) {
+            Compress compress = CodecRegistry.getCompress(compressType);
+            ByteBuf compressed = channelHandlerContext.alloc().ioBuffer(bodyLength);
+            try {
+                compress.compress(out.slice(bodyStart, bodyLength), compressed);
+                // 压缩后不比原文小（如已压缩过的或随机数据）则保留原文，省去对端的解压
+                if (compressed.readableBytes() < bodyLength) {
+                    out.writerIndex(bodyStart);
+                    out.writeBytes(compressed);
+                    compressedBody = true;
+                }
+            } finally {
+                compressed.release();
             }
         }
-        throw new AkiRpcException("无对应的序列化类型");
-    }
-
-    /**
-     * SPI动态获取实现的压缩器类
-     * @param compressType
-     * @return
-     */
-    private Compress loadCompress(byte compressType) {
-        String name = CompressTypeEnum.getName(compressType);
-        log.info("SPI: 压缩类型为"+name);
-        ServiceLoader<Compress> load = ServiceLoader.load(Compress.class);
-        for (Compress compress : load){
-            if (compress.name().equals(name)){
-                return compress;
-            }
+        if (!compressedBody) {
+            out.setByte(frameStart + COMPRESS_OFFSET, CompressTypeEnum.NONE.getCode());
         }
-        throw new AkiRpcException("无对应的压缩类型");
+
+        // 4. 计算帧总长，回填 full length 至之前预留的位置
+        int fullLength = out.writerIndex() - frameStart;
+        out.setInt(frameStart + AkiRpcConstants.MAGIC_NUMBER.length + 1, fullLength);
     }
 }
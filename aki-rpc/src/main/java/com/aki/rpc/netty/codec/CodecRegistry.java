@@ -0,0 +1,111 @@
+package com.aki.rpc.netty.codec;
+
+import com.aki.rpc.compress.Compress;
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.constant.SerializationTypeEnum;
+import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.serialize.Serializer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ServiceLoader;
+
+/**
+ * @Auther akizora
+ * 编解码注册表：协议头中的 codec/compress 字节 -> 预构建的序列化器/压缩器实例
+ * 启动时通过SPI一次性扫描 META-INF/services 完成装载，之后编解码每一帧只需一次数组下标访问
+ * 注册表中的实例会被所有 channel 共享，SPI 实现类必须是线程安全的
+ */
+@Slf4j
+public final class CodecRegistry {
+
+    // 协议中的类型字段为 1B，按无符号值建立 256 长度的下标表
+    private static final int TABLE_SIZE = 256;
+
+    // 写时复制：注册时整体替换数组，读路径只有一次 volatile 读
+    private static volatile Serializer[] serializers = new Serializer[TABLE_SIZE];
+    private static volatile Compress[] compresses = new Compress[TABLE_SIZE];
+
+    static {
+        loadSerializers();
+        loadCompresses();
+    }
+
+    private CodecRegistry() {
+    }
+
+    /**
+     * 根据协议头中的序列化类型获取序列化器
+     * @param codec
+     * @return
+     */
+    public static Serializer getSerializer(byte codec) {
+        Serializer serializer = serializers[codec & 0xFF];
+        if (serializer == null) {
+            throw new AkiRpcException("无对应的序列化类型");
+        }
+        return serializer;
+    }
+
+    /**
+     * 根据协议头中的压缩类型获取压缩器
+     * @param compressType
+     * @return
+     */
+    public static Compress getCompress(byte compressType) {
+        Compress compress = compresses[compressType & 0xFF];
+        if (compress == null) {
+            throw new AkiRpcException("无对应的压缩类型");
+        }
+        return compress;
+    }
+
+    /**
+     * 手动注册序列化器，用于接入未在 SerializationTypeEnum 中声明的扩展实现
+     * @param codec
+     * @param serializer
+     */
+    public static synchronized void registerSerializer(byte codec, Serializer serializer) {
+        Serializer[] copy = serializers.clone();
+        copy[codec & 0xFF] = serializer;
+        serializers = copy;
+    }
+
+    /**
+     * 手动注册压缩器，用于接入未在 CompressTypeEnum 中声明的扩展实现
+     * @param compressType
+     * @param compress
+     */
+    public static synchronized void registerCompress(byte compressType, Compress compress) {
+        Compress[] copy = compresses.clone();
+        copy[compressType & 0xFF] = compress;
+        compresses = copy;
+    }
+
+    /**
+     * SPI扫描所有序列化器，按 name 与枚举匹配后放入对应的编码下标
+     */
+    private static void loadSerializers() {
+        for (Serializer serializer : ServiceLoader.load(Serializer.class)) {
+            for (SerializationTypeEnum type : SerializationTypeEnum.values()) {
+                if (type.getName().equals(serializer.name())) {
+                    registerSerializer(type.getCode(), serializer);
+                    log.info("SPI: 装载序列化类型 {} -> {}", type.getName(), serializer.getClass().getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * SPI扫描所有压缩器，按 name 与枚举匹配后放入对应的编码下标
+     */
+    private static void loadCompresses() {
+        for (Compress compress : ServiceLoader.load(Compress.class)) {
+            for (CompressTypeEnum type : CompressTypeEnum.values()) {
+                if (type.getName().equals(compress.name())) {
+                    registerCompress(type.getCode(), compress);
+                    log.info("SPI: 装载压缩类型 {} -> {}", type.getName(), compress.getClass().getName());
+                }
+            }
+        }
+    }
+}
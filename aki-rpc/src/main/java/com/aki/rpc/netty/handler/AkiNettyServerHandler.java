@@ -1,26 +1,56 @@
 package com.aki.rpc.netty.handler;
 
+import com.aki.rpc.constant.CompressTypeEnum;
 import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.constant.ResponseCodeEnum;
 import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.exception.AkiRpcException;
 import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.message.AkiHandshake;
 import com.aki.rpc.message.AkiMessage;
 import com.aki.rpc.message.AkiRequest;
 import com.aki.rpc.message.AkiResponse;
+import com.aki.rpc.message.AkiStreamCredit;
+import com.aki.rpc.metrics.AkiAccessLog;
+import com.aki.rpc.server.AdaptiveConcurrencyLimiter;
+import com.aki.rpc.server.AkiServiceProvider;
+import com.aki.rpc.server.MethodInvoker;
+import com.aki.rpc.server.ServiceExecutors;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+
 @Slf4j
 public class AkiNettyServerHandler extends ChannelInboundHandlerAdapter {
 
     private AkiRequestHandler akiRequestHandler;
+    private AkiServiceProvider akiServiceProvider;
+    private AkiAccessLog akiAccessLog;
+    private ServiceExecutors serviceExecutors;
+    // 自适应并发限制，未开启时为null
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    // 连接不可写时暂存的响应，只在 EventLoop 中访问，恢复可写后按顺序写出
+    private final Queue<AkiMessage> pendingResponses = new ArrayDeque<>();
+    // 本连接上进行中的流式调用 请求id-发送端，只在 EventLoop 中访问
+    private final IntObjectMap<StreamEmitter> streams = new IntObjectHashMap<>();
 
-    public AkiNettyServerHandler(){
+    public AkiNettyServerHandler(ServiceExecutors serviceExecutors, AdaptiveConcurrencyLimiter concurrencyLimiter){
         akiRequestHandler = SingletonFactory.getInstance(AkiRequestHandler.class);
+        akiServiceProvider = SingletonFactory.getInstance(AkiServiceProvider.class);
+        akiAccessLog = SingletonFactory.getInstance(AkiAccessLog.class);
+        this.serviceExecutors = serviceExecutors;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     /**
@@ -40,33 +70,84 @@ public class AkiNettyServerHandler extends ChannelInboundHandlerAdapter {
                 // 2.1判断消息类型是否为心跳检测请求 (PING)，是则返回(PONG)消息
                 if (MessageTypeEnum.HEARTBEAT_PING.getCode() == messageType){
                     akiMessage.setMessageType(MessageTypeEnum.HEARTBEAT_PONG.getCode());
+                    akiMessage.setCompress(CompressTypeEnum.NONE.getCode());
                     akiMessage.setData(AkiRpcConstants.HEART_PONG);
+                    ctx.writeAndFlush(akiMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+                }
+
+                // 2.1.1 连接握手：回复本服务端所有已发布方法的id，之后该连接的请求只携带方法id
+                if (MessageTypeEnum.HANDSHAKE_REQUEST.getCode() == messageType){
+                    akiMessage.setMessageType(MessageTypeEnum.HANDSHAKE_RESPONSE.getCode());
+                    akiMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+                    akiMessage.setData(new AkiHandshake(akiServiceProvider.getMethodIds()));
+                    ctx.writeAndFlush(akiMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
                 }
 
                 // 2.2 判断消息类型是否为调用业务请求
                 if (MessageTypeEnum.REQUEST.getCode() == messageType){
-                    // 2.2.1 通过Request处理器处理业务，使用反射找到方法 发起调用 获取结果
+                    // 2.2.1 在IO线程上查表得到方法调用器（服务发布时已构建），调用本身转交业务执行器，IO线程不被业务阻塞
                     AkiRequest akiRequest = (AkiRequest) akiMessage.getData();
-                    Object result = akiRequestHandler.handler(akiRequest);
-
-                    // 2.2.2 设置消息类型
-                    akiMessage.setMessageType(MessageTypeEnum.RESPONSE.getCode());
-
-                    // 2.2.3 检查当前通道是否活跃且可写，确保可以发送响应数据
-                    if (ctx.channel().isActive() && ctx.channel().isWritable()) {
-                        // 活跃则设置成功响应消息，并准备发送
-                        AkiResponse akiResponse = AkiResponse.success(result, akiRequest.getRequestId());
-                        akiMessage.setData(akiResponse);
-                        log.info("服务端收到数据，并处理完成{}:",akiMessage);
-                    }else{
-                        // 否则设置失败消息
-                        akiMessage.setData(AkiResponse.fail("net fail"));
+                    MethodInvoker invoker;
+                    try {
+                        invoker = akiRequestHandler.getInvoker(akiRequest);
+                    } catch (AkiRpcException e) {
+                        // 2.2.1.1 找不到调用器（服务未发布、方法id失效等）：同样回复失败，避免调用方一直等到超时
+                        // 此时无从得知方法是否为流式，按请求是否携带流式信用决定以响应帧还是结束帧返回
+                        log.info("请求 {} 找不到调用器: {}", akiMessage.getRequestId(), e.getMessage());
+                        akiMessage.setMessageType(akiRequest.getStreamCredits() > 0
+                                ? MessageTypeEnum.STREAM_END.getCode() : MessageTypeEnum.RESPONSE.getCode());
+                        akiMessage.setCompress(CompressTypeEnum.NONE.getCode());
+                        writeResponse(ctx, akiMessage, AkiResponse.fail(e.getMessage()));
+                        return;
+                    }
+
+                    // 2.2.2 设置消息类型，响应压缩类型由@AkiService指定（请求帧的压缩类型可能已被改写为NONE）
+                    // 流式方法的拒绝/失败以结束帧返回
+                    akiMessage.setMessageType(invoker.isStreaming()
+                            ? MessageTypeEnum.STREAM_END.getCode() : MessageTypeEnum.RESPONSE.getCode());
+                    akiMessage.setCompress(invoker.getServiceConfig().getCompress());
+
+                    // 2.2.3 超出自适应并发上限：请求不进入业务执行器，直接返回过载响应，由客户端换实例重试
+                    long startNanos = System.nanoTime();
+                    if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+                        writeResponse(ctx, akiMessage, AkiResponse.overloaded("服务端过载，请求被拒绝"));
+                        accessLog(ctx, invoker, startNanos, ResponseCodeEnum.OVERLOADED.getCode());
+                        return;
+                    }
+                    try {
+                        if (invoker.isStreaming()) {
+                            // 2.2.5 流式方法：发送端按请求携带的初始信用发送，登记后接收客户端的信用与取消
+                            // 数据块与结束帧都回到 EventLoop 写出，登记总是先于它们执行
+                            StreamEmitter emitter = new StreamEmitter(this, ctx, serviceExecutors, invoker, akiMessage,
+                                    akiRequest.getStreamCredits() > 0 ? akiRequest.getStreamCredits() : AkiRpcConstants.STREAM_WINDOW, startNanos);
+                            serviceExecutors.execute(invoker, () -> invokeStream(emitter, invoker, akiRequest, startNanos));
+                            streams.put(akiMessage.getRequestId(), emitter);
+                        } else {
+                            serviceExecutors.execute(invoker, () -> invoke(ctx, akiMessage, invoker, akiRequest, startNanos));
+                        }
+                    } catch (RejectedExecutionException e) {
+                        // 2.2.4 业务执行器已满（舱壁队列满）或已关闭：请求未执行，直接返回过载响应
+                        if (concurrencyLimiter != null) {
+                            concurrencyLimiter.onDropped();
+                        }
+                        writeResponse(ctx, akiMessage, AkiResponse.overloaded("服务繁忙，请求被拒绝"));
+                        accessLog(ctx, invoker, startNanos, ResponseCodeEnum.OVERLOADED.getCode());
                     }
                 }
 
-                // 3.将消息写入到通道并刷新，发送给客户端；
-                // *如果写入失败，自动关闭通道（CLOSE_ON_FAILURE）
-                ctx.writeAndFlush(akiMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+                // 2.3 流式调用的信用：补充信用恢复发送，或客户端已放弃剩余数据
+                if (MessageTypeEnum.STREAM_CREDIT.getCode() == messageType){
+                    StreamEmitter emitter = streams.get(akiMessage.getRequestId());
+                    AkiStreamCredit credit = (AkiStreamCredit) akiMessage.getData();
+                    if (emitter != null && credit != null) {
+                        if (credit.isCancel()) {
+                            streams.remove(akiMessage.getRequestId());
+                            emitter.cancel();
+                        } else {
+                            emitter.addCredits(credit.getCredits());
+                        }
+                    }
+                }
             }
         }catch (Exception e){
             log.error("读取消息出错:",e);
@@ -77,6 +158,207 @@ public class AkiNettyServerHandler extends ChannelInboundHandlerAdapter {
 
     }
 
+    /**
+     * 在业务线程中调用服务方法并写回结果
+     * @param ctx
+     * @param akiMessage
+     * @param invoker
+     * @param akiRequest
+     * @param startNanos 请求进入处理器的时间，用于自适应并发限制的耗时统计
+     */
+    private void invoke(ChannelHandlerContext ctx, AkiMessage akiMessage, MethodInvoker invoker, AkiRequest akiRequest, long startNanos) {
+        Object result = null;
+        try {
+            result = akiRequestHandler.handler(invoker, akiRequest);
+        } catch (Exception | Error e) {
+            // 同步服务抛出异常：与异步服务失败一样返回失败响应；Error 同样先回复调用方，再交由执行器线程处理
+            log.info("服务提供方 方法调用 出现问题:", e);
+            writeResponse(ctx, akiMessage, AkiResponse.fail(String.valueOf(e.getMessage())));
+            accessLog(ctx, invoker, startNanos, ResponseCodeEnum.FAIL.getCode());
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return;
+        } finally {
+            if (!(result instanceof CompletionStage)) {
+                complete(startNanos);
+            }
+        }
+
+        // 异步服务（返回 CompletableFuture/CompletionStage）：待其完成后再写回结果，不占用业务线程等待
+        if (result instanceof CompletionStage) {
+            ((CompletionStage<?>) result).whenComplete((value, throwable) -> {
+                complete(startNanos);
+                if (throwable != null) {
+                    log.info("服务提供方 异步方法调用 出现问题:", throwable);
+                    writeResponse(ctx, akiMessage, AkiResponse.fail(String.valueOf(throwable.getMessage())));
+                    accessLog(ctx, invoker, startNanos, ResponseCodeEnum.FAIL.getCode());
+                } else {
+                    writeResponse(ctx, akiMessage, AkiResponse.success(value));
+                    accessLog(ctx, invoker, startNanos, ResponseCodeEnum.SUCCESS.getCode());
+                }
+            });
+        } else {
+            writeResponse(ctx, akiMessage, AkiResponse.success(result));
+            accessLog(ctx, invoker, startNanos, ResponseCodeEnum.SUCCESS.getCode());
+        }
+    }
+
+    /**
+     * 在业务线程中调用流式方法，返回后由发送端按信用发送结果
+     * 并发限制只统计方法本身的耗时，发送过程取决于客户端的消费速度
+     * @param emitter
+     * @param invoker
+     * @param akiRequest
+     * @param startNanos
+     */
+    private void invokeStream(StreamEmitter emitter, MethodInvoker invoker, AkiRequest akiRequest, long startNanos) {
+        Object result;
+        try {
+            result = akiRequestHandler.handler(invoker, akiRequest);
+        } catch (Exception | Error e) {
+            // 方法本身抛出异常：不发送任何数据块，直接以失败结束该流（同时移除登记），Error 随后重新抛出
+            log.info("服务提供方 流式方法调用 出现问题:", e);
+            emitter.fail(e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return;
+        } finally {
+            complete(startNanos);
+        }
+        try {
+            emitter.start(result);
+        } catch (RuntimeException | Error e) {
+            // 数据源在开始发送前即出错（如发布者 subscribe 时抛出）
+            log.info("服务提供方 流式数据源 出现问题:", e);
+            emitter.fail(e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    /**
+     * 按服务采样率记录一条服务端访问日志
+     * @param ctx
+     * @param invoker
+     * @param startNanos
+     * @param code
+     */
+    void accessLog(ChannelHandlerContext ctx, MethodInvoker invoker, long startNanos, int code) {
+        if (akiAccessLog.sample(invoker.getServiceConfig().getAccessLogSampleRate())) {
+            akiAccessLog.record(AkiAccessLog.PROVIDER, invoker.getServiceName(), invoker.getMethodName(),
+                    ctx.channel().remoteAddress(), code, System.nanoTime() - startNanos, null);
+        }
+    }
+
+    /**
+     * 方法执行结束，归还并发名额并记录耗时
+     * @param startNanos
+     */
+    private void complete(long startNanos) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.onComplete(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 将调用结果写回客户端
+     * @param ctx
+     * @param akiMessage
+     * @param akiResponse
+     */
+    private void writeResponse(ChannelHandlerContext ctx, AkiMessage akiMessage, AkiResponse<?> akiResponse) {
+        // 1. 设置响应消息，回到 EventLoop 中写出（业务线程中调用时由 EventLoop 排队执行）
+        akiMessage.setData(akiResponse);
+        writeMessage(ctx, akiMessage);
+    }
+
+    /**
+     * 回到 EventLoop 中写出消息，同一线程提交的消息按提交顺序写出
+     * @param ctx
+     * @param akiMessage
+     */
+    void writeMessage(ChannelHandlerContext ctx, AkiMessage akiMessage) {
+        if (ctx.executor().inEventLoop()) {
+            writeOrQueue(ctx, akiMessage);
+        } else {
+            ctx.executor().execute(() -> writeOrQueue(ctx, akiMessage));
+        }
+    }
+
+    /**
+     * 写出流式调用的结束帧并移除该流
+     * @param ctx
+     * @param akiMessage
+     */
+    void endStream(ChannelHandlerContext ctx, AkiMessage akiMessage) {
+        if (ctx.executor().inEventLoop()) {
+            streams.remove(akiMessage.getRequestId());
+            writeOrQueue(ctx, akiMessage);
+        } else {
+            ctx.executor().execute(() -> endStream(ctx, akiMessage));
+        }
+    }
+
+    /**
+     * 连接可写且没有积压时直接写出；否则暂存响应并暂停读取新请求，待 channelWritabilityChanged 恢复后写出
+     * 客户端消费过慢时不再丢弃结果，也不会因持续接收新请求而无限堆积出站数据
+     * @param ctx
+     * @param akiMessage
+     */
+    private void writeOrQueue(ChannelHandlerContext ctx, AkiMessage akiMessage) {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        if (pendingResponses.isEmpty() && ctx.channel().isWritable()) {
+            // 将消息写入到通道并刷新，发送给客户端；*如果写入失败，自动关闭通道（CLOSE_ON_FAILURE）
+            ctx.writeAndFlush(akiMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            return;
+        }
+        pendingResponses.add(akiMessage);
+        ctx.channel().config().setAutoRead(false);
+    }
+
+    /**
+     * 写出暂存的响应，直到连接再次不可写；全部写出后恢复读取
+     * @param ctx
+     */
+    private void drainResponses(ChannelHandlerContext ctx) {
+        boolean written = false;
+        AkiMessage akiMessage;
+        while (ctx.channel().isWritable() && (akiMessage = pendingResponses.poll()) != null) {
+            ctx.write(akiMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            written = true;
+        }
+        if (written) {
+            ctx.flush();
+        }
+        if (pendingResponses.isEmpty()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable() && !pendingResponses.isEmpty()) {
+            drainResponses(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 连接已关闭，暂存的响应无法再写出，进行中的流式调用停止生产
+        pendingResponses.clear();
+        for (StreamEmitter emitter : streams.values()) {
+            emitter.cancel();
+        }
+        streams.clear();
+        ctx.fireChannelInactive();
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof IdleStateEvent){
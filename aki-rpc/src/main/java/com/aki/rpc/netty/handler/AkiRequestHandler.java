@@ -4,11 +4,9 @@ import com.aki.rpc.exception.AkiRpcException;
 import com.aki.rpc.factory.SingletonFactory;
 import com.aki.rpc.message.AkiRequest;
 import com.aki.rpc.server.AkiServiceProvider;
+import com.aki.rpc.server.MethodInvoker;
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-
 /**
  * @Auther akizora
  *
@@ -22,25 +20,45 @@ public class AkiRequestHandler {
         akiServiceProvider = SingletonFactory.getInstance(AkiServiceProvider.class);
     }
 
-    public Object handler(AkiRequest akiRequest) {
-        // 1. 从请求中获取接口名称、版本号，并获取服务实例
-        String interfaceName = akiRequest.getInterfaceName();
-        String version = akiRequest.getVersion();
-        Object service = akiServiceProvider.getService(interfaceName + version);
+    /**
+     * 查找请求对应的方法调用器（服务发布时已构建好）
+     * @param akiRequest
+     * @return
+     */
+    public MethodInvoker getInvoker(AkiRequest akiRequest) {
+        // 1. 握手后的请求只携带方法id，直接按下标取调用器；否则从请求中获取接口名称、版本号、方法签名，逐级查找调用器
+        MethodInvoker invoker = akiRequest.getMethodId() > 0
+                ? akiServiceProvider.getInvoker(akiRequest.getMethodId())
+                : akiServiceProvider.getInvoker(akiRequest.getInterfaceName(), akiRequest.getVersion(),
+                        akiRequest.getMethodName(), akiRequest.getParamTypes());
 
-        // 2.实例判空
-        if (service == null){
+        // 2.调用器判空
+        if (invoker == null){
             throw new AkiRpcException("没有找到可用的服务提供方");
         }
+        return invoker;
+    }
 
-        //3.通过invoke返回所调用方法执行结果
+    public Object handler(AkiRequest akiRequest) throws Exception {
+        return handler(getInvoker(akiRequest), akiRequest);
+    }
+
+    /**
+     * 通过方法句柄直接调用，返回所调用方法执行结果
+     * 服务方法抛出的异常原样抛给调用方，由其返回失败响应；Error 不做处理
+     * @param invoker
+     * @param akiRequest
+     * @return
+     * @throws Exception 服务方法抛出的异常
+     */
+    public Object handler(MethodInvoker invoker, AkiRequest akiRequest) throws Exception {
         try {
-            Method method = service.getClass().getMethod(akiRequest.getMethodName(), akiRequest.getParamTypes());
-            return method.invoke(service, akiRequest.getParameters());
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            log.info("服务提供方 方法调用 出现问题:",e);
+            return invoker.invoke(akiRequest.getParameters());
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // 既非 Exception 也非 Error 的自定义 Throwable
+            throw new AkiRpcException("服务提供方 方法调用 出现问题: " + e);
         }
-
-        return null;
     }
 }
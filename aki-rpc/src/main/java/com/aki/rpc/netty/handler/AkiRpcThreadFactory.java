@@ -1,15 +1,43 @@
 package com.aki.rpc.netty.handler;
 
 import com.aki.rpc.server.AkiServiceProvider;
+import lombok.extern.slf4j.Slf4j;
 
+import java.lang.reflect.Method;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 线程工场
+ * 可产出平台线程或虚拟线程（JDK 21+），虚拟线程通过反射创建，低版本JDK上自动退回平台线程
  */
+@Slf4j
 public class AkiRpcThreadFactory implements ThreadFactory {
 
+    // Thread.ofVirtual() 与 Thread.Builder 的反射句柄，当前JDK不支持虚拟线程时为null
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            // JDK 19/20 中虚拟线程为预览特性，未开启 --enable-preview 时调用会抛出异常
+            ofVirtual.invoke(null);
+        } catch (Throwable e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+    }
+
     private AkiServiceProvider akiServiceProvider;
 
     private static final AtomicInteger poolNumber = new AtomicInteger(1);
@@ -19,7 +47,17 @@ public class AkiRpcThreadFactory implements ThreadFactory {
 
     private final ThreadGroup threadGroup;
 
+    // 虚拟线程工厂，为null时创建平台线程
+    private final ThreadFactory virtualThreadFactory;
+
     public AkiRpcThreadFactory(AkiServiceProvider akiServiceProvider) {
+        this(akiServiceProvider, false);
+    }
+
+    /**
+     * @param virtual 是否创建虚拟线程，当前JDK不支持时退回平台线程
+     */
+    public AkiRpcThreadFactory(AkiServiceProvider akiServiceProvider, boolean virtual) {
         // 1.缓存akiServiceProvider作为上下文备用
         this.akiServiceProvider = akiServiceProvider;
 
@@ -29,6 +67,38 @@ public class AkiRpcThreadFactory implements ThreadFactory {
 
         // 3.生成类似 "aki-rpc-0-thread-", "aki-rpc-1-thread-" 这样的线程名称前缀
         namePrefix = "aki-rpc-" + poolNumber.getAndIncrement()+"-thread-";
+
+        // 4.按需构建虚拟线程工厂，线程名沿用同一前缀，序号由Builder自增
+        virtualThreadFactory = virtual ? newVirtualThreadFactory(namePrefix) : null;
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 本工厂创建的是否为虚拟线程
+     */
+    public boolean isVirtual() {
+        return virtualThreadFactory != null;
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        if (!isVirtualThreadSupported()) {
+            log.warn("当前JDK({})不支持虚拟线程，退回平台线程", System.getProperty("java.version"));
+            return null;
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            log.warn("创建虚拟线程工厂失败，退回平台线程", e);
+            return null;
+        }
     }
 
 
@@ -39,6 +109,10 @@ public class AkiRpcThreadFactory implements ThreadFactory {
      */
     @Override
     public Thread newThread(Runnable runnable) {
+        // 0.虚拟线程固定为守护线程、标准优先级，无需再设置
+        if (virtualThreadFactory != null) {
+            return virtualThreadFactory.newThread(runnable);
+        }
         // 1.生成名如aki-rpc-0-thread-0的线程，线程栈大小类型为0，即系统默认(一般默认为1MB)
         Thread t = new Thread(threadGroup, runnable,
                 namePrefix + threadNumber.getAndIncrement(), 0);
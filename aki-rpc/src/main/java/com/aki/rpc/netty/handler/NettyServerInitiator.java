@@ -1,32 +1,43 @@
 package com.aki.rpc.netty.handler;
 
+import com.aki.rpc.config.AkiRpcConfig;
 import com.aki.rpc.netty.codec.AkiRpcDecoder;
 import com.aki.rpc.netty.codec.AkiRpcEncoder;
+import com.aki.rpc.server.AdaptiveConcurrencyLimiter;
+import com.aki.rpc.server.ServiceExecutors;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
-import io.netty.util.concurrent.DefaultEventExecutorGroup;
 
 import java.util.concurrent.TimeUnit;
 
 
 public class NettyServerInitiator extends ChannelInitializer<SocketChannel> {
-    private DefaultEventExecutorGroup eventExecutors;
+    private ServiceExecutors serviceExecutors;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private AkiRpcConfig akiRpcConfig;
 
-    public NettyServerInitiator(DefaultEventExecutorGroup eventExecutors) {
-        this.eventExecutors = eventExecutors;
+    public NettyServerInitiator(ServiceExecutors serviceExecutors, AdaptiveConcurrencyLimiter concurrencyLimiter, AkiRpcConfig akiRpcConfig) {
+        this.serviceExecutors = serviceExecutors;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.akiRpcConfig = akiRpcConfig;
     }
 
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
+        //合并flush：业务线程写回的响应在事件循环中合并刷出，须位于编码器之前（靠近head）
+        if (akiRpcConfig.getFlushConsolidation() > 0){
+            ch.pipeline().addLast(new FlushConsolidationHandler(akiRpcConfig.getFlushConsolidation(), true));
+        }
         //定义 TCP协议 数据报文格式
         //10s中 没有读请求 认为该触发心跳检测
         ch.pipeline().addLast(new IdleStateHandler(10,0,0, TimeUnit.SECONDS));
         //解码器
         ch.pipeline ().addLast ( "decoder",new AkiRpcDecoder() );
         //编码器
-        ch.pipeline ().addLast ( "encoder",new AkiRpcEncoder());
-        //消息处理器，线程池处理
-        ch.pipeline ().addLast ( eventExecutors,"handler",new AkiNettyServerHandler());
+        ch.pipeline ().addLast ( "encoder",new AkiRpcEncoder(akiRpcConfig.getCompressThreshold()));
+        //消息处理器，运行在IO线程，方法调用转交业务执行器
+        ch.pipeline ().addLast ( "handler",new AkiNettyServerHandler(serviceExecutors, concurrencyLimiter));
     }
 }
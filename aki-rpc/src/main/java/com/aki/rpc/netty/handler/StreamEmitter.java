@@ -0,0 +1,305 @@
+package com.aki.rpc.netty.handler;
+
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.constant.ResponseCodeEnum;
+import com.aki.rpc.message.AkiMessage;
+import com.aki.rpc.message.AkiResponse;
+import com.aki.rpc.message.AkiStreamChunk;
+import com.aki.rpc.server.MethodInvoker;
+import com.aki.rpc.server.ServiceExecutors;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * @Auther akizora
+ * 服务端单次流式调用的发送端，服务方法返回 Stream/Iterator/Flow.Publisher 时创建，登记在所属连接的处理器中
+ * - 只在持有信用时发送，每块最多 STREAM_CHUNK_SIZE 个元素；信用耗尽即暂停，客户端补充信用后恢复
+ * - Stream/Iterator：在业务执行器中拉取，暂停期间不占用业务线程，恢复时重新提交到该服务的执行器
+ * - Flow.Publisher：信用直接转换为 Subscription.request(n)，由发布者按需推送
+ * - 数据源结束或出错时发送结束帧；客户端取消或连接关闭时停止生产，Stream 与 AutoCloseable 的 Iterator 会被关闭
+ */
+@Slf4j
+class StreamEmitter implements Flow.Subscriber<Object> {
+
+    private final AkiNettyServerHandler handler;
+    private final ChannelHandlerContext ctx;
+    private final ServiceExecutors serviceExecutors;
+    private final MethodInvoker invoker;
+    private final int requestId;
+    private final byte codec;
+    private final long startNanos;
+
+    // 剩余信用（元素数）
+    private final AtomicLong credits;
+
+    // 拉取任务正在运行或已提交，保证同一时刻只有一个线程访问数据源；创建时由首次调用所在的业务线程持有
+    private final AtomicBoolean pumping = new AtomicBoolean(true);
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private volatile boolean cancelled;
+
+    // Stream/Iterator 数据源，以及结束时需要关闭的资源，只由持有 pumping 的线程访问
+    private Iterator<?> iterator;
+    private AutoCloseable resource;
+
+    // Flow.Publisher 数据源
+    private volatile boolean publisher;
+    private volatile Flow.Subscription subscription;
+    // 发布者推送、尚未写出的元素，由 EventLoop 合并为数据块写出
+    private final List<Object> batch = new ArrayList<>();
+    private boolean flushScheduled;
+
+    StreamEmitter(AkiNettyServerHandler handler, ChannelHandlerContext ctx, ServiceExecutors serviceExecutors,
+                  MethodInvoker invoker, AkiMessage requestMessage, int initialCredits, long startNanos) {
+        this.handler = handler;
+        this.ctx = ctx;
+        this.serviceExecutors = serviceExecutors;
+        this.invoker = invoker;
+        this.requestId = requestMessage.getRequestId();
+        this.codec = requestMessage.getCodec();
+        this.startNanos = startNanos;
+        this.credits = new AtomicLong(initialCredits);
+    }
+
+    /**
+     * 服务方法返回后开始发送，在业务线程中调用
+     * @param result 服务方法的返回值，为null时视为空流
+     */
+    @SuppressWarnings("unchecked")
+    void start(Object result) {
+        if (result instanceof Flow.Publisher) {
+            publisher = true;
+            pumping.set(false);
+            ((Flow.Publisher<Object>) result).subscribe(this);
+            return;
+        }
+        if (result instanceof Stream) {
+            Stream<?> stream = (Stream<?>) result;
+            resource = stream;
+            iterator = stream.iterator();
+        } else if (result instanceof Iterator) {
+            iterator = (Iterator<?>) result;
+            resource = result instanceof AutoCloseable ? (AutoCloseable) result : null;
+        } else {
+            iterator = Collections.emptyIterator();
+        }
+        pump();
+    }
+
+    /**
+     * 服务方法调用失败或数据源无法开始发送，以失败结束该流，在业务线程中调用
+     * @param cause
+     */
+    void fail(Throwable cause) {
+        closeSource();
+        finish(AkiResponse.fail(String.valueOf(cause.getMessage())), ResponseCodeEnum.FAIL.getCode());
+    }
+
+    /**
+     * 客户端补充信用，在 EventLoop 中调用
+     * @param n
+     */
+    void addCredits(int n) {
+        if (n <= 0 || finished.get()) {
+            return;
+        }
+        if (publisher) {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.request(n);
+            }
+            return;
+        }
+        credits.addAndGet(n);
+        if (pumping.compareAndSet(false, true)) {
+            schedulePump();
+        }
+    }
+
+    /**
+     * 客户端取消或连接关闭，在 EventLoop 中调用；不再发送结束帧
+     */
+    void cancel() {
+        cancelled = true;
+        finished.set(true);
+        if (publisher) {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+            return;
+        }
+        // 拉取任务未运行时由当前线程关闭数据源，运行中则由拉取任务在下一轮关闭
+        if (pumping.compareAndSet(false, true)) {
+            closeSource();
+        }
+    }
+
+    /**
+     * 拉取数据源并按信用发送，信用耗尽时释放业务线程
+     */
+    private void pump() {
+        for (;;) {
+            if (cancelled) {
+                closeSource();
+                return;
+            }
+            long available = credits.get();
+            if (available <= 0) {
+                pumping.set(false);
+                // 释放后信用恰好到达或流被取消时，由本线程继续处理
+                if ((credits.get() > 0 || cancelled) && pumping.compareAndSet(false, true)) {
+                    continue;
+                }
+                return;
+            }
+
+            // 1.拉取至多一个数据块的元素，数据源出错时先发出已拉取的元素
+            int size = (int) Math.min(available, AkiRpcConstants.STREAM_CHUNK_SIZE);
+            List<Object> items = new ArrayList<>(size);
+            boolean exhausted = false;
+            Throwable failure = null;
+            try {
+                while (items.size() < size) {
+                    if (!iterator.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    items.add(iterator.next());
+                }
+            } catch (Throwable e) {
+                failure = e;
+            }
+            if (!items.isEmpty()) {
+                credits.addAndGet(-items.size());
+                writeChunk(items);
+            }
+
+            // 2.数据源结束或出错，关闭数据源并发送结束帧
+            if (failure != null) {
+                log.info("服务提供方 流式数据源 出现问题:", failure);
+                closeSource();
+                finish(AkiResponse.fail(String.valueOf(failure.getMessage())), ResponseCodeEnum.FAIL.getCode());
+                return;
+            }
+            if (exhausted) {
+                closeSource();
+                finish(AkiResponse.success(null), ResponseCodeEnum.SUCCESS.getCode());
+                return;
+            }
+        }
+    }
+
+    private void schedulePump() {
+        try {
+            serviceExecutors.execute(invoker, this::pump);
+        } catch (RejectedExecutionException e) {
+            closeSource();
+            finish(AkiResponse.overloaded("服务繁忙，流式响应中断"), ResponseCodeEnum.OVERLOADED.getCode());
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(credits.get());
+    }
+
+    @Override
+    public void onNext(Object item) {
+        synchronized (batch) {
+            batch.add(item);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        ctx.executor().execute(this::flushBatch);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.info("服务提供方 流式发布者 出现问题:", throwable);
+        ctx.executor().execute(() -> {
+            flushBatch();
+            finish(AkiResponse.fail(String.valueOf(throwable.getMessage())), ResponseCodeEnum.FAIL.getCode());
+        });
+    }
+
+    @Override
+    public void onComplete() {
+        ctx.executor().execute(() -> {
+            flushBatch();
+            finish(AkiResponse.success(null), ResponseCodeEnum.SUCCESS.getCode());
+        });
+    }
+
+    /**
+     * 将发布者推送的元素合并为数据块写出，在 EventLoop 中调用
+     */
+    private void flushBatch() {
+        List<Object> items;
+        synchronized (batch) {
+            items = new ArrayList<>(batch);
+            batch.clear();
+            flushScheduled = false;
+        }
+        for (int i = 0; i < items.size(); i += AkiRpcConstants.STREAM_CHUNK_SIZE) {
+            writeChunk(new ArrayList<>(items.subList(i, Math.min(items.size(), i + AkiRpcConstants.STREAM_CHUNK_SIZE))));
+        }
+    }
+
+    private void writeChunk(List<Object> items) {
+        if (cancelled) {
+            return;
+        }
+        handler.writeMessage(ctx, AkiMessage.builder()
+                .messageType(MessageTypeEnum.STREAM_CHUNK.getCode())
+                .codec(codec)
+                .compress(invoker.getServiceConfig().getCompress())
+                .requestId(requestId)
+                .data(new AkiStreamChunk(items))
+                .build());
+    }
+
+    private void finish(AkiResponse<?> akiResponse, int code) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        handler.endStream(ctx, AkiMessage.builder()
+                .messageType(MessageTypeEnum.STREAM_END.getCode())
+                .codec(codec)
+                .compress(invoker.getServiceConfig().getCompress())
+                .requestId(requestId)
+                .data(akiResponse)
+                .build());
+        handler.accessLog(ctx, invoker, startNanos, code);
+    }
+
+    private void closeSource() {
+        AutoCloseable current = resource;
+        resource = null;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (Exception e) {
+            log.warn("关闭流式数据源出错:", e);
+        }
+    }
+}
@@ -2,17 +2,31 @@ package com.aki.rpc.proxy;
 
 
 import com.aki.rpc.annotation.AkiReference;
+import com.aki.rpc.config.AkiReferenceConfig;
+import com.aki.rpc.constant.ResponseCodeEnum;
 import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.message.AkiHandshake;
 import com.aki.rpc.message.AkiRequest;
 import com.aki.rpc.message.AkiResponse;
 import com.aki.rpc.netty.client.NettyClient;
+import com.aki.rpc.netty.client.StreamPublisher;
+import com.aki.rpc.netty.client.StreamReceiver;
+import com.aki.rpc.utils.StreamingUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.UUID;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.stream.StreamSupport;
 
 //每一个动态代理类的调用处理程序都必须实现InvocationHandler接口，
 // 并且每个代理类的实例都关联到了实现该接口的动态代理类调用处理程序中，
@@ -26,11 +40,15 @@ public class AkiRpcClientProxy implements InvocationHandler {
 
     }
     private AkiReference akiReference;
+    private AkiReferenceConfig akiReferenceConfig;
     private NettyClient nettyClient;
+    // 方法 -> 方法签名，用于在已握手的连接上查找方法id
+    private final Map<Method, String> methodKeys = new ConcurrentHashMap<>();
     
 
     public AkiRpcClientProxy(AkiReference akiReference,NettyClient nettyClient) {
         this.akiReference = akiReference;
+        this.akiReferenceConfig = AkiReferenceConfig.from(akiReference);
         this.nettyClient = nettyClient;
     }
 
@@ -41,9 +59,9 @@ public class AkiRpcClientProxy implements InvocationHandler {
      */
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         //实现业务，向服务提供方发起网络请求，获取结果 并返回
-        log.info("rpc 服务消费方 发起了调用..... invoke调用了");
         //1. 构建请求数据AkiRequest
-        String version = akiReference.version();
+        String version = akiReferenceConfig.getVersion();
+        boolean streaming = isStreaming(method);
         AkiRequest akiRequest = AkiRequest.builder()
                 .group("aki-rpc")
                 .interfaceName(method.getDeclaringClass().getName())
@@ -51,20 +69,108 @@ public class AkiRpcClientProxy implements InvocationHandler {
                 .version(version)
                 .parameters(args)
                 .paramTypes(method.getParameterTypes())
-                .requestId(UUID.randomUUID().toString())
+                .streamCredits(streaming ? akiReferenceConfig.getStreamWindow() : 0)
+                .methodKey(methodKeys.computeIfAbsent(method, m -> AkiHandshake.methodKey(
+                        m.getDeclaringClass().getName(), version, m.getName(), m.getParameterTypes())))
                 .build();
 
+        //1.1 流式调用：返回 Stream/Iterator/Flow.Publisher 时按信用分批接收，结果不在内存中整体物化
+        if (streaming) {
+            return openStream(method.getReturnType(), akiRequest);
+        }
+
         //2. 通过客户端向服务端发送请求，并返回一个CompletableFuture异步结果
-        Object sendRequest = nettyClient.sendRequest(akiRequest);
+        // *异步调用时，连接阶段的异常同样以失败的 future 返回，而不是直接抛给调用方
+        boolean async = isAsync(method);
+        Object sendRequest;
+        try {
+            sendRequest = nettyClient.sendRequest(akiRequest, akiReferenceConfig);
+        } catch (AkiRpcException e) {
+            if (!async) {
+                throw e;
+            }
+            CompletableFuture<Object> failedFuture = new CompletableFuture<>();
+            failedFuture.completeExceptionally(e);
+            return failedFuture;
+        }
         CompletableFuture<AkiResponse<Object>> resultCompletableFuture = (CompletableFuture<AkiResponse<Object>>) sendRequest;
 
-        //3. 接收数据，判定异常
-        AkiResponse<Object> akiResponse = resultCompletableFuture.get();
+        //3. 异步调用：方法返回 CompletableFuture/CompletionStage 时不阻塞调用线程
+        // 响应到达后在回调线程池中取出结果完成 future，业务回调不会跑在IO线程上
+        if (async) {
+            CompletableFuture<Object> asyncFuture = new CompletableFuture<>();
+            resultCompletableFuture.whenCompleteAsync((akiResponse, throwable) -> {
+                if (throwable != null) {
+                    asyncFuture.completeExceptionally(throwable);
+                    return;
+                }
+                try {
+                    asyncFuture.complete(getData(akiResponse));
+                } catch (Throwable e) {
+                    asyncFuture.completeExceptionally(e);
+                }
+            }, nettyClient.getCallbackExecutor());
+            return asyncFuture;
+        }
+
+        //4. 同步调用：接收数据，判定异常
+        // 超时由客户端时间轮负责：到期后 future 以 AkiRpcTimeoutException 结束，这里只需解包抛出原始异常
+        AkiResponse<Object> akiResponse;
+        try {
+            akiResponse = resultCompletableFuture.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+        return getData(akiResponse);
+    }
+
+    /**
+     * 方法返回值为 CompletableFuture/CompletionStage 的视为异步调用
+     * @param method
+     * @return
+     */
+    private static boolean isAsync(Method method) {
+        Class<?> returnType = method.getReturnType();
+        return returnType == CompletableFuture.class || returnType == CompletionStage.class;
+    }
+
+    /**
+     * 方法返回值为 Stream/Iterator/Flow.Publisher 的视为流式调用，与服务端共用 StreamingUtil 的判定
+     * @param method
+     * @return
+     */
+    private static boolean isStreaming(Method method) {
+        return StreamingUtil.isStreaming(method.getReturnType());
+    }
+
+    /**
+     * 发起流式调用并按方法返回值类型包装接收端
+     * - Iterator：直接返回接收端，迭代时阻塞等待下一个元素
+     * - Stream：基于接收端的顺序流，关闭 Stream 即取消调用
+     * - Flow.Publisher：订阅时才发起调用，元素在回调线程池中按订阅者的需求投递
+     * @param returnType
+     * @param akiRequest
+     * @return
+     */
+    private Object openStream(Class<?> returnType, AkiRequest akiRequest) {
+        if (returnType == Flow.Publisher.class) {
+            return new StreamPublisher(() -> nettyClient.openStream(akiRequest, akiReferenceConfig), nettyClient.getCallbackExecutor());
+        }
+        StreamReceiver streamReceiver = nettyClient.openStream(akiRequest, akiReferenceConfig);
+        if (returnType == Iterator.class) {
+            return streamReceiver;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(streamReceiver, Spliterator.ORDERED), false)
+                .onClose(streamReceiver::close);
+    }
+
+    private static Object getData(AkiResponse<Object> akiResponse) {
         if (akiResponse == null){
             throw new AkiRpcException("服务调用失败");
         }
-        if (!akiRequest.getRequestId().equals(akiResponse.getRequestId())){
-            throw new AkiRpcException("响应结果和请求不一致");
+        // 服务端返回失败或过载拒绝时，不再把空数据当作正常结果返回
+        if (akiResponse.getCode() != null && akiResponse.getCode() != ResponseCodeEnum.SUCCESS.getCode()){
+            throw new AkiRpcException("服务调用失败: " + akiResponse.getMessage());
         }
         return akiResponse.getData();
     }
@@ -0,0 +1,54 @@
+package com.aki.rpc.register;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import lombok.Getter;
+
+import java.net.InetSocketAddress;
+
+/**
+ * @Auther akizora
+ * 服务提供方实例，服务目录快照中的一个元素
+ * 地址在构建快照时解析一次，调用路径上直接使用，不再重复创建 InetSocketAddress
+ */
+@Getter
+public class ProviderInstance {
+
+    private final String ip;
+    private final int port;
+    // 权重，Nacos 权重 1.0 对应 100，最小为 1
+    private final int weight;
+    // ip:port，用于在新旧快照之间识别同一实例
+    private final String key;
+    private final InetSocketAddress address;
+    // 调用统计，跨快照沿用
+    private final ProviderStats stats;
+
+    public ProviderInstance(String ip, int port, int weight, ProviderStats stats) {
+        this.ip = ip;
+        this.port = port;
+        this.weight = Math.max(1, weight);
+        this.key = ip + ":" + port;
+        this.address = new InetSocketAddress(ip, port);
+        this.stats = stats;
+    }
+
+    /**
+     * 由 Nacos 实例构建，previous 为上一份快照中同一 ip:port 的实例（可为空），用于沿用调用统计
+     * @param instance
+     * @param previous
+     * @return
+     */
+    public static ProviderInstance from(Instance instance, ProviderInstance previous) {
+        int weight = (int) Math.round(instance.getWeight() * 100);
+        if (previous != null && previous.weight == Math.max(1, weight)) {
+            return previous;
+        }
+        return new ProviderInstance(instance.getIp(), instance.getPort(), weight,
+                previous != null ? previous.stats : new ProviderStats());
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
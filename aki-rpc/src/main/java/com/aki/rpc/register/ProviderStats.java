@@ -0,0 +1,50 @@
+package com.aki.rpc.register;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Auther akizora
+ * 服务提供方的调用统计，供负载均衡策略使用
+ * 同一 ip:port 的实例在服务目录快照更新时沿用同一份统计，不会因为上下线推送而清零
+ */
+public class ProviderStats {
+
+    // EWMA 平滑系数，新样本占 1/8
+    private static final int EWMA_SHIFT = 3;
+
+    // 正在进行中的调用数
+    private final AtomicInteger active = new AtomicInteger();
+
+    // 响应耗时的指数加权移动平均（纳秒），0 表示尚无样本
+    private final AtomicLong ewmaLatency = new AtomicLong();
+
+    /**
+     * 发起一次调用
+     */
+    public void begin() {
+        active.incrementAndGet();
+    }
+
+    /**
+     * 一次调用结束（成功、失败或超时），记录本次耗时
+     * @param latencyNanos
+     */
+    public void end(long latencyNanos) {
+        active.decrementAndGet();
+        long prev;
+        long next;
+        do {
+            prev = ewmaLatency.get();
+            next = prev == 0 ? latencyNanos : prev + ((latencyNanos - prev) >> EWMA_SHIFT);
+        } while (!ewmaLatency.compareAndSet(prev, next));
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public long getEwmaLatency() {
+        return ewmaLatency.get();
+    }
+}
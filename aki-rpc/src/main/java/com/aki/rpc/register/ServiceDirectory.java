@@ -0,0 +1,221 @@
+package com.aki.rpc.register;
+
+import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.register.nacos.NacosTemplate;
+import com.alibaba.nacos.api.naming.listener.Event;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @Auther akizora
+ * 客户端服务目录：服务名 -> 服务提供方实例快照
+ * 首次访问某个服务时向 Nacos 订阅，之后由 Nacos 推送的变更事件整体替换快照（不可变数组 + volatile 引用）
+ * 调用路径只读取本地快照，不访问注册中心；Nacos 不可用时继续使用最后一份快照
+ * 快照变化时通知新出现的提供方（提前建连）与不再被任何服务引用的提供方（关闭连接池）
+ */
+@Slf4j
+public class ServiceDirectory {
+
+    private static final ProviderInstance[] EMPTY = new ProviderInstance[0];
+
+    // 订阅失败后的重试间隔，避免 Nacos 宕机期间每次调用都去连接注册中心
+    private static final long SUBSCRIBE_RETRY_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private final Map<String, ServiceHolder> directory = new ConcurrentHashMap<>();
+    private final NacosTemplate nacosTemplate;
+    // 新服务提供方出现时的回调，如提前建立连接
+    private final List<Consumer<ProviderInstance>> listeners = new CopyOnWriteArrayList<>();
+    // 服务提供方地址不再被任何服务引用时的回调，如关闭到该地址的连接池
+    private final List<Consumer<ProviderInstance>> removalListeners = new CopyOnWriteArrayList<>();
+
+    public ServiceDirectory() {
+        nacosTemplate = SingletonFactory.getInstance(NacosTemplate.class);
+    }
+
+    /**
+     * 注册新服务提供方出现时的回调
+     * @param listener
+     */
+    public void addListener(Consumer<ProviderInstance> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 注册服务提供方下线时的回调
+     * 同一地址通常同时提供多个服务，只有目录中所有服务的快照都不再包含该地址时才会回调
+     * @param listener
+     */
+    public void addRemovalListener(Consumer<ProviderInstance> listener) {
+        removalListeners.add(listener);
+    }
+
+    /**
+     * 获取服务当前的提供方快照，返回的数组不可修改
+     * @param groupName
+     * @param serviceName
+     * @return
+     */
+    public ProviderInstance[] getInstances(String groupName, String serviceName) {
+        ServiceHolder holder = directory.computeIfAbsent(groupName + "@@" + serviceName, k -> new ServiceHolder());
+        if (!holder.subscribed) {
+            subscribe(holder, groupName, serviceName);
+        }
+        return holder.instances;
+    }
+
+    /**
+     * 订阅服务变更，并以当前健康实例作为初始快照
+     * 监听器注册与初始快照分开记录：查询失败重试时不会重复注册监听器
+     * @param holder
+     * @param groupName
+     * @param serviceName
+     */
+    private void subscribe(ServiceHolder holder, String groupName, String serviceName) {
+        synchronized (holder) {
+            if (holder.subscribed || System.nanoTime() - holder.lastAttempt < SUBSCRIBE_RETRY_INTERVAL) {
+                return;
+            }
+            holder.lastAttempt = System.nanoTime();
+            try {
+                // 1. 先订阅，保证初始快照之后的变更不会丢失；监听器只注册一次
+                if (!holder.listening) {
+                    nacosTemplate.subscribe(groupName, serviceName, event -> onEvent(holder, serviceName, event));
+                    holder.listening = true;
+                }
+                // 2. 订阅后查询走 Nacos 客户端本地缓存，作为初始快照；已收到推送时不再覆盖
+                update(holder, nacosTemplate.selectInstances(groupName, serviceName, true), true);
+                holder.subscribed = true;
+                log.info("订阅服务:{}，当前提供方:{}", serviceName, holder.instances.length);
+            } catch (Exception e) {
+                log.error("订阅nacos服务 出错，继续使用本地快照:", e);
+            }
+        }
+    }
+
+    /**
+     * Nacos 推送的服务变更事件，整体替换快照
+     * @param holder
+     * @param serviceName
+     * @param event
+     */
+    private void onEvent(ServiceHolder holder, String serviceName, Event event) {
+        if (event instanceof NamingEvent) {
+            update(holder, ((NamingEvent) event).getInstances(), false);
+            log.info("服务:{} 提供方变更，当前提供方:{}", serviceName, holder.instances.length);
+        }
+    }
+
+    /**
+     * 替换快照，并通知新出现与已下线的服务提供方
+     * @param holder
+     * @param instances
+     * @param seed 是否为订阅时查询的初始快照，推送可能先于查询结果到达，此时丢弃初始快照
+     */
+    private void update(ServiceHolder holder, List<Instance> instances, boolean seed) {
+        ProviderInstance[] previous;
+        ProviderInstance[] snapshot;
+        synchronized (holder) {
+            if (seed && holder.pushed) {
+                return;
+            }
+            if (!seed) {
+                // 收到推送即视为订阅完成，不再重试查询初始快照
+                holder.pushed = true;
+                holder.subscribed = true;
+            }
+            previous = holder.instances;
+            snapshot = toSnapshot(instances, previous);
+            holder.instances = snapshot;
+        }
+        for (ProviderInstance providerInstance : snapshot) {
+            if (!contains(previous, providerInstance)) {
+                fire(listeners, providerInstance);
+            }
+        }
+        for (ProviderInstance providerInstance : previous) {
+            if (!contains(snapshot, providerInstance) && !referenced(providerInstance)) {
+                fire(removalListeners, providerInstance);
+            }
+        }
+    }
+
+    private static void fire(List<Consumer<ProviderInstance>> listeners, ProviderInstance providerInstance) {
+        for (Consumer<ProviderInstance> listener : listeners) {
+            try {
+                listener.accept(providerInstance);
+            } catch (Exception e) {
+                log.error("服务提供方变更回调 出错:", e);
+            }
+        }
+    }
+
+    /**
+     * 目录中是否仍有服务的快照包含该地址
+     * @param target
+     * @return
+     */
+    private boolean referenced(ProviderInstance target) {
+        for (ServiceHolder holder : directory.values()) {
+            if (contains(holder.instances, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(ProviderInstance[] instances, ProviderInstance target) {
+        for (ProviderInstance providerInstance : instances) {
+            if (providerInstance.getKey().equals(target.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 构建新快照，上一份快照中仍存在的实例沿用其调用统计
+     * @param instances
+     * @param previous
+     * @return
+     */
+    private static ProviderInstance[] toSnapshot(List<Instance> instances, ProviderInstance[] previous) {
+        if (instances == null || instances.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, ProviderInstance> previousMap = new HashMap<>(previous.length * 2);
+        for (ProviderInstance providerInstance : previous) {
+            previousMap.put(providerInstance.getKey(), providerInstance);
+        }
+        List<ProviderInstance> snapshot = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (instance.isHealthy() && instance.isEnabled()) {
+                snapshot.add(ProviderInstance.from(instance, previousMap.get(instance.getIp() + ":" + instance.getPort())));
+            }
+        }
+        return snapshot.toArray(EMPTY);
+    }
+
+    /**
+     * 单个服务的快照持有者
+     */
+    private static final class ServiceHolder {
+        private volatile ProviderInstance[] instances = EMPTY;
+        // 已拿到快照（初始查询成功或收到推送）
+        private volatile boolean subscribed;
+        // 监听器已注册到 Nacos，以下字段只在持有 holder 锁时访问
+        private boolean listening;
+        // 已收到过推送
+        private boolean pushed;
+        private long lastAttempt = System.nanoTime() - SUBSCRIBE_RETRY_INTERVAL;
+    }
+}
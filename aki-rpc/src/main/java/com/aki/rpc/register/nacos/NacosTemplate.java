@@ -4,6 +4,7 @@ import com.alibaba.nacos.api.NacosFactory;
 import com.alibaba.nacos.api.config.ConfigService;
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 
 import java.util.List;
@@ -63,4 +64,14 @@ public class NacosTemplate {
         return namingService.selectOneHealthyInstance(serverName,groupName);
     }
 
+    //获取指定组内的全部实例，healthy为true时只返回健康实例
+    public List<Instance> selectInstances(String groupName,String serverName,boolean healthy) throws Exception{
+        return namingService.selectInstances(serverName,groupName,healthy);
+    }
+
+    //订阅服务变更，实例上下线时由Nacos推送NamingEvent
+    public void subscribe(String groupName,String serverName,EventListener listener) throws Exception{
+        namingService.subscribe(serverName,groupName,listener);
+    }
+
 }
@@ -1,13 +1,18 @@
 package com.aki.rpc.serialize;
 
 import com.aki.rpc.constant.SerializationTypeEnum;
+import com.aki.rpc.exception.AkiRpcException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.protostuff.ByteBufferInput;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
 
+import java.io.IOException;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -18,11 +23,17 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ProtostuffSerializer implements Serializer{
 
     /**
-     * LinkedBuffer 大小默认为512，按等容分节点式扩容
-     * 避免每次序列化都重新申请Buffer空间,用来暂时存放对象序列化之后的数据
-     * 如果你设置的空间不足，会自动扩展的，但这个大小还是要设置一个合适的值，设置大了浪费空间，设置小了会自动扩展浪费时间
+     * LinkedBuffer 的最小/最大容量，线程缓存的 buffer 在此区间内按观测到的报文大小自适应伸缩
+     * 过小会导致频繁分节点扩容(toByteArray)或频繁刷出(writeTo)，过大则浪费每个线程常驻的内存
      */
-    private LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+    private static final int MIN_BUFFER_SIZE = LinkedBuffer.DEFAULT_BUFFER_SIZE;
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 每个线程（即每个 EventLoop / 业务线程）独占一个 LinkedBuffer
+     * 序列化器实例由 CodecRegistry 在所有 channel 间共享，buffer 不能作为共享字段使用
+     */
+    private static final ThreadLocal<BufferHolder> BUFFER_HOLDER = ThreadLocal.withInitial(BufferHolder::new);
 
     /**
      * Schema记录一个对象的全方位具体信息
@@ -30,7 +41,7 @@ public class ProtostuffSerializer implements Serializer{
      * 这是一个很耗时的过程，因此进行缓存很有必要，下次遇到相同的类直接从缓存中get就行了
      * 存在则直接获取，不存在先生成再获取
      */
-    private Map<Class<?>, Schema<?>> schemaCache = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Schema<?>> schemaCache = new ConcurrentHashMap<>();
 
     @Override
     public String name() {
@@ -45,18 +56,37 @@ public class ProtostuffSerializer implements Serializer{
         Schema schema = getSchema(clazz);
 
         // 3.创建序列化数组
-        byte[] data;
+        byte[] data = null;
 
+        // 4.借出当前线程的 LinkedBuffer
+        BufferHolder holder = BUFFER_HOLDER.get();
+        LinkedBuffer buffer = holder.acquire();
         try {
-            //4.序列化操作，将对象转换为字节数组
+            //5.序列化操作，将对象转换为字节数组
             data = ProtostuffIOUtil.toByteArray(obj, schema, buffer);
         } finally {
-            //5.使用完清空buffer
-            buffer.clear();
+            //6.使用完清空buffer，并按本次报文大小调整下次的容量
+            holder.release(buffer, data == null ? 0 : data.length);
         }
         return data;
     }
 
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        Schema schema = getSchema(obj.getClass());
+        BufferHolder holder = BUFFER_HOLDER.get();
+        LinkedBuffer buffer = holder.acquire();
+        int size = 0;
+        try {
+            // LinkedBuffer 写满即刷入出站缓冲区，不再整体物化为 byte[]
+            size = ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), obj, schema, buffer);
+        } catch (IOException e) {
+            throw new AkiRpcException("序列化数据出错", e);
+        } finally {
+            holder.release(buffer, size);
+        }
+    }
+
     public Object deserialize(byte[] bytes, Class<?> clazz) {
         Schema schema = getSchema(clazz);
         Object obj = schema.newMessage();
@@ -65,23 +95,96 @@ public class ProtostuffSerializer implements Serializer{
         return obj;
     }
 
+    @Override
+    public Object deserialize(ByteBuf in, Class<?> clazz) {
+        Schema schema = getSchema(clazz);
+        Object obj = schema.newMessage();
+        try {
+            if (in.hasArray()) {
+                // 堆内缓冲区：直接在底层数组上按偏移读取
+                ProtostuffIOUtil.mergeFrom(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes(), obj, schema);
+            } else if (in.nioBufferCount() == 1) {
+                // 堆外连续缓冲区：以 ByteBuffer 视图读取，不做任何拷贝
+                ByteBufferInput input = new ByteBufferInput(in.nioBuffer(), true);
+                schema.mergeFrom(input, obj);
+                input.checkLastTagWas(0);
+            } else {
+                // 复合缓冲区：按流读取，借用线程缓存的 LinkedBuffer 作为读缓冲
+                BufferHolder holder = BUFFER_HOLDER.get();
+                LinkedBuffer buffer = holder.acquire();
+                try {
+                    ProtostuffIOUtil.mergeFrom(new ByteBufInputStream(in), obj, schema, buffer);
+                } finally {
+                    holder.release(buffer, 0);
+                }
+            }
+        } catch (IOException e) {
+            throw new AkiRpcException("反序列化数据出错", e);
+        }
+        in.readerIndex(in.writerIndex());
+        return obj;
+    }
+
     /**
      * @description 获取Schema，若池中不存在则创建存入
+     * RuntimeSchema 的创建过程是线程安全的，computeIfAbsent 保证同一个类只会创建并缓存一次
      * @param clazz
      * @return [io.protostuff.Schema]
      */
     private Schema getSchema(Class clazz) {
-        //首先尝试从Map缓存中获取类对应的schema
-        Schema schema = schemaCache.get(clazz);
-        if(Objects.isNull(schema)) {
-            //新创建一个schema，RuntimeSchema就是将schema繁琐的创建过程封装了起来
-            //它的创建过程是线程安全的,采用懒创建的方式，即当需要schema的时候才创建
-            schema = RuntimeSchema.getSchema(clazz);
-            if(Objects.nonNull(schema)) {
-                //缓存schema，方便下次直接使用
-                schemaCache.put(clazz, schema);
+        return schemaCache.computeIfAbsent(clazz, RuntimeSchema::getSchema);
+    }
+
+    /**
+     * 线程级 LinkedBuffer 持有者，容量按观测到的报文大小自适应伸缩
+     * - 报文超过当前容量：立即扩容至不小于报文大小的 2 的幂
+     * - 连续多次报文不足当前容量的 1/4：缩容一半
+     */
+    private static final class BufferHolder {
+
+        // 连续多少次偏小才缩容，避免大小报文交替时来回抖动
+        private static final int SHRINK_THRESHOLD = 16;
+
+        private LinkedBuffer buffer;
+        private int capacity = MIN_BUFFER_SIZE;
+        private int smallCount;
+        private boolean inUse;
+
+        private LinkedBuffer acquire() {
+            // 同一线程内重入（极少见）时临时分配，不打乱缓存的 buffer
+            if (inUse) {
+                return LinkedBuffer.allocate(capacity);
+            }
+            inUse = true;
+            if (buffer == null) {
+                buffer = LinkedBuffer.allocate(capacity);
+            }
+            return buffer;
+        }
+
+        private void release(LinkedBuffer used, int size) {
+            used.clear();
+            if (used != buffer) {
+                return;
+            }
+            inUse = false;
+            if (size > capacity && capacity < MAX_BUFFER_SIZE) {
+                capacity = Math.min(MAX_BUFFER_SIZE, nextPowerOfTwo(size));
+                buffer = null;
+                smallCount = 0;
+            } else if (size > 0 && size < capacity >>> 2 && capacity > MIN_BUFFER_SIZE) {
+                if (++smallCount >= SHRINK_THRESHOLD) {
+                    capacity = Math.max(MIN_BUFFER_SIZE, capacity >>> 1);
+                    buffer = null;
+                    smallCount = 0;
+                }
+            } else {
+                smallCount = 0;
             }
         }
-        return schema;
+
+        private static int nextPowerOfTwo(int value) {
+            return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+        }
     }
 }
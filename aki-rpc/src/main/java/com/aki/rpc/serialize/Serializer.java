@@ -1,5 +1,6 @@
 package com.aki.rpc.serialize;
 
+import io.netty.buffer.ByteBuf;
 
 /**
  * @Auther akizora
@@ -19,6 +20,17 @@ public interface Serializer {
      */
     byte[] serialize(Object obj);
 
+    /**
+     * 序列化并直接写入出站缓冲区，避免中间 byte[] 的产生
+     * 默认实现退化为 byte[] 拷贝，具体实现类可按需重写
+     *
+     * @param obj 要序列化的对象
+     * @param out 出站缓冲区
+     */
+    default void serialize(Object obj, ByteBuf out) {
+        out.writeBytes(serialize(obj));
+    }
+
     /**
      * 反序列化
      *
@@ -27,4 +39,18 @@ public interface Serializer {
      * @return 反序列化的对象
      */
     Object deserialize(byte[] bytes, Class<?> clazz);
+
+    /**
+     * 直接从入站缓冲区反序列化，读取 in 中全部可读字节，避免拷贝出 byte[]
+     * 默认实现退化为 byte[] 拷贝，具体实现类可按需重写
+     *
+     * @param in    入站缓冲区
+     * @param clazz 目标类
+     * @return 反序列化的对象
+     */
+    default Object deserialize(ByteBuf in, Class<?> clazz) {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        return deserialize(bytes, clazz);
+    }
 }
@@ -0,0 +1,182 @@
+package com.aki.rpc.server;
+
+import com.aki.rpc.constant.AkiRpcConstants;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * @Auther akizora
+ * 服务端自适应并发限制（Gradient 算法）
+ * 同时处理中的请求数超过当前上限时直接拒绝，上限按观测到的调用耗时周期性调整：
+ * - longRtt：耗时的长期均值，代表服务未排队时的基准耗时
+ * - shortRtt：最近一个窗口的平均耗时，排队加剧时随之上升
+ * - gradient = clamp(0.5, 1, 容忍系数 * longRtt / shortRtt)，新上限 = 上限 * gradient + sqrt(上限)
+ * 耗时稳定时上限缓慢增长，排队导致耗时上升时上限按比例收缩，多余的请求以过载响应快速拒绝
+ * 每次完成只向 LongAdder 累加样本，不加锁；窗口到期后由抢到 tryLock 的一个线程结算并开启下一个窗口
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // 一个调整窗口至少持续的时间与样本数
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int WINDOW_MIN_SAMPLES = 10;
+
+    // shortRtt 允许超出 longRtt 的倍数，超出后才开始收缩上限
+    private static final double RTT_TOLERANCE = 1.5;
+
+    // longRtt 的平滑系数，约等于最近 20 个窗口的均值
+    private static final double LONG_RTT_ALPHA = 0.05;
+
+    // 上限的平滑系数，避免单个窗口的抖动造成上限大幅变化
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    // 处理中的请求数
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    // 当前并发上限，读路径只做一次 volatile 读
+    private volatile int limit;
+
+    private final LongSupplier nanoClock;
+
+    // 当前窗口的样本，由完成请求的线程无锁累加；结算与累加并发时，个别样本可能计入下一个窗口
+    private final LongAdder windowRttSum = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicInteger windowMaxInflight = new AtomicInteger();
+    private volatile long windowStart;
+
+    // 窗口结算锁，只用 tryLock，未抢到的线程直接返回
+    private final ReentrantLock rollLock = new ReentrantLock();
+
+    // 以下字段只在持有结算锁时访问
+    private double estimatedLimit;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter() {
+        this(AkiRpcConstants.ADAPTIVE_LIMIT_INITIAL, AkiRpcConstants.ADAPTIVE_LIMIT_MIN, AkiRpcConstants.ADAPTIVE_LIMIT_MAX);
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, System::nanoTime);
+    }
+
+    // 可指定时钟，便于测试中推进窗口
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+        this.nanoClock = nanoClock;
+        this.windowStart = nanoClock.getAsLong();
+    }
+
+    /**
+     * 尝试占用一个并发名额，已达上限时返回false，调用方应直接拒绝请求
+     * @return
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求处理完成，归还名额并记录耗时
+     * @param latencyNanos 从占用名额到写回响应的耗时，包含在业务执行器中的排队时间
+     */
+    public void onComplete(long latencyNanos) {
+        int current = inflight.getAndDecrement();
+        sample(latencyNanos, current);
+    }
+
+    /**
+     * 请求未被执行（如被舱壁拒绝），只归还名额，不计入耗时
+     */
+    public void onDropped() {
+        inflight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private void sample(long latencyNanos, int inflightAtComplete) {
+        // 1.无锁累积当前窗口
+        windowRttSum.add(latencyNanos);
+        windowSamples.increment();
+        int max = windowMaxInflight.get();
+        while (inflightAtComplete > max && !windowMaxInflight.compareAndSet(max, inflightAtComplete)) {
+            max = windowMaxInflight.get();
+        }
+        long now = nanoClock.getAsLong();
+        if (now - windowStart < WINDOW_NANOS || windowSamples.sum() < WINDOW_MIN_SAMPLES) {
+            return;
+        }
+        // 窗口到期，只由一个线程结算，其余线程不等待
+        if (!rollLock.tryLock()) {
+            return;
+        }
+        try {
+            if (now - windowStart < WINDOW_NANOS) {
+                return;
+            }
+            roll(now);
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    /**
+     * 结算当前窗口并调整上限，持有结算锁时调用
+     * @param now
+     */
+    private void roll(long now) {
+        // 取出本窗口的样本并开启下一个窗口
+        long samples = windowSamples.sumThenReset();
+        long rttSum = windowRttSum.sumThenReset();
+        int maxInflight = windowMaxInflight.getAndSet(0);
+        windowStart = now;
+        if (samples == 0) {
+            return;
+        }
+
+        // 2.窗口结束，计算短期与长期耗时
+        double shortRtt = Math.max(1.0, (double) rttSum / samples);
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt = longRtt * (1 - LONG_RTT_ALPHA) + shortRtt * LONG_RTT_ALPHA;
+        }
+        // 长期耗时明显高于当前耗时，说明刚从一次拥塞中恢复，加快回落
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // 3.按耗时梯度计算新上限；并发远未达到上限时（业务量本身不足）不再增长，避免上限虚高
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        double newLimit;
+        if (gradient >= 1.0 && maxInflight < estimatedLimit / 2) {
+            newLimit = estimatedLimit;
+        } else {
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        }
+        estimatedLimit = estimatedLimit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+        limit = (int) estimatedLimit;
+    }
+}
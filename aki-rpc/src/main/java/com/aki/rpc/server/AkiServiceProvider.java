@@ -3,15 +3,23 @@ package com.aki.rpc.server;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 import com.aki.rpc.annotation.AkiService;
 import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.config.AkiServiceConfig;
 import com.aki.rpc.exception.AkiRpcException;
 import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.message.AkiHandshake;
 import com.aki.rpc.netty.NettyServer;
 import com.aki.rpc.register.nacos.NacosTemplate;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -26,11 +34,21 @@ public class AkiServiceProvider {
     @Getter
     private AkiRpcConfig akiRpcConfig;
     private final Map<String, Object> serviceMap;       // 全局服务本地映射表查询表，用于匹配interfaceName的bean查询其相关Method进行invoke操作
+    private final Map<String, AkiServiceConfig> serviceConfigMap;   // 服务名称 - 服务发布配置
+    // 方法调用器表，下标即方法id，0 保留表示未指定；发布服务时整体替换（写时复制）
+    private volatile MethodInvoker[] invokers = new MethodInvoker[1];
+    // 接口名 -> 版本 -> 方法名 -> 同名重载的调用器，按名称查找时逐级取，避免拼接字符串
+    private final Map<String, Map<String, Map<String, MethodInvoker[]>>> invokerIndex;
+    // 方法签名 -> 方法id，握手时整体下发给客户端
+    @Getter
+    private volatile Map<String, Integer> methodIds = Collections.emptyMap();
     private NacosTemplate nacosTemplate;
 
     // 初始化并发HashMap，并单例式获取Nacos工具类
     public AkiServiceProvider(){
         serviceMap = new ConcurrentHashMap<>();
+        serviceConfigMap = new ConcurrentHashMap<>();
+        invokerIndex = new ConcurrentHashMap<>();
         nacosTemplate = SingletonFactory.getInstance(NacosTemplate.class);
     }
 
@@ -71,7 +89,12 @@ public class AkiServiceProvider {
 
 
         // 3.将服务存储到本地映射表中（接口名+版本作为key）
+        AkiServiceConfig serviceConfig = AkiServiceConfig.from(akiService);
         serviceMap.put(interfaceName+version,service);
+        serviceConfigMap.put(interfaceName+version, serviceConfig);
+
+        // 3.1 为接口的每个方法构建调用器并分配方法id
+        registerInvokers(interfaceName, serviceConfig, service);
 
         // 4.同步注册到Nacos中
         //group 只有在同一个组内 调用关系才能成立，不同的组之间是隔离的
@@ -95,6 +118,78 @@ public class AkiServiceProvider {
         }
     }
 
+    /**
+     * 为服务接口的所有方法构建调用器，方法按 名称+参数类型 排序后依次分配id
+     * 接口上的静态方法无法绑定到服务实例、也不会经由代理远程调用，与编译器生成的桥接/合成方法一并跳过
+     * @param interfaceName
+     * @param serviceConfig
+     * @param service
+     */
+    private synchronized void registerInvokers(String interfaceName, AkiServiceConfig serviceConfig, Object service) {
+        Method[] methods = Arrays.stream(service.getClass().getInterfaces()[0].getMethods())
+                .filter(method -> !Modifier.isStatic(method.getModifiers()) && !method.isSynthetic() && !method.isBridge())
+                .toArray(Method[]::new);
+        Arrays.sort(methods, Comparator.comparing(Method::getName).thenComparing(method -> Arrays.toString(method.getParameterTypes())));
+
+        MethodInvoker[] table = Arrays.copyOf(invokers, invokers.length + methods.length);
+        Map<String, MethodInvoker[]> methodIndex = new HashMap<>();
+        int methodId = invokers.length;
+        for (Method method : methods) {
+            MethodInvoker invoker;
+            try {
+                invoker = new MethodInvoker(methodId, interfaceName, serviceConfig, service, method);
+            } catch (IllegalAccessException e) {
+                throw new AkiRpcException("构建方法调用器失败:" + method, e);
+            }
+            table[methodId++] = invoker;
+            MethodInvoker[] overloads = methodIndex.get(method.getName());
+            overloads = overloads == null ? new MethodInvoker[1] : Arrays.copyOf(overloads, overloads.length + 1);
+            overloads[overloads.length - 1] = invoker;
+            methodIndex.put(method.getName(), overloads);
+        }
+        invokerIndex.computeIfAbsent(interfaceName, k -> new ConcurrentHashMap<>()).put(serviceConfig.getVersion(), methodIndex);
+        invokers = table;
+
+        Map<String, Integer> ids = new HashMap<>(methodIds);
+        for (int i = 1; i < table.length; i++) {
+            MethodInvoker invoker = table[i];
+            ids.put(AkiHandshake.methodKey(invoker.getInterfaceName(), invoker.getVersion(), invoker.getMethodName(), invoker.getParamTypes()), i);
+        }
+        methodIds = Collections.unmodifiableMap(ids);
+    }
+
+    /**
+     * 根据方法id获取调用器
+     * @param methodId
+     * @return 不存在时返回null
+     */
+    public MethodInvoker getInvoker(int methodId) {
+        MethodInvoker[] table = invokers;
+        return methodId > 0 && methodId < table.length ? table[methodId] : null;
+    }
+
+    /**
+     * 根据 接口名/版本/方法名/参数类型 获取调用器
+     * @return 不存在时返回null
+     */
+    public MethodInvoker getInvoker(String interfaceName, String version, String methodName, Class<?>[] paramTypes) {
+        Map<String, Map<String, MethodInvoker[]>> versions = invokerIndex.get(interfaceName);
+        Map<String, MethodInvoker[]> methodIndex = versions == null ? null : versions.get(version);
+        MethodInvoker[] overloads = methodIndex == null ? null : methodIndex.get(methodName);
+        if (overloads == null) {
+            return null;
+        }
+        if (overloads.length == 1 && paramTypes == null) {
+            return overloads[0];
+        }
+        for (MethodInvoker invoker : overloads) {
+            if (Arrays.equals(invoker.getParamTypes(), paramTypes == null ? new Class<?>[0] : paramTypes)) {
+                return invoker;
+            }
+        }
+        return null;
+    }
+
     /**
      * 根据服务名称从本地缓存表单获取服务实例
      * @param serviceName
@@ -104,4 +199,12 @@ public class AkiServiceProvider {
         return serviceMap.get(serviceName);
     }
 
+    /**
+     * 根据服务名称获取服务发布配置
+     * @param serviceName
+     * @return
+     */
+    public AkiServiceConfig getServiceConfig(String serviceName){
+        return serviceConfigMap.get(serviceName);
+    }
 }
@@ -0,0 +1,63 @@
+package com.aki.rpc.server;
+
+import com.aki.rpc.config.AkiServiceConfig;
+import com.aki.rpc.utils.StreamingUtil;
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * @Auther akizora
+ * 服务方法调用器，服务发布时为接口的每个方法预先构建
+ * MethodHandle 已绑定服务实例并展开为 Object[] 参数，调用时无需再做方法查找与访问检查
+ */
+@Getter
+public class MethodInvoker {
+
+    // 方法id，即在 AkiServiceProvider 调用器表中的下标
+    private final int methodId;
+    private final String interfaceName;
+    private final String version;
+    // 服务名称，即 AkiServiceProvider 中的 接口名+版本
+    private final String serviceName;
+    private final String methodName;
+    private final Class<?>[] paramTypes;
+    // 所属服务的发布配置
+    private final AkiServiceConfig serviceConfig;
+    // 是否为流式方法：返回 Stream/Iterator/Flow.Publisher，结果按客户端信用分批发送
+    private final boolean streaming;
+    // (Object[])Object 形态的方法句柄
+    private final MethodHandle methodHandle;
+
+    public MethodInvoker(int methodId, String interfaceName, AkiServiceConfig serviceConfig, Object service, Method method) throws IllegalAccessException {
+        this.methodId = methodId;
+        this.interfaceName = interfaceName;
+        this.version = serviceConfig.getVersion();
+        this.serviceName = interfaceName + version;
+        this.methodName = method.getName();
+        this.paramTypes = method.getParameterTypes();
+        this.serviceConfig = serviceConfig;
+        // 与客户端使用同一判定，返回值为流式类型的子类型时拒绝发布
+        StreamingUtil.checkReturnType(method);
+        this.streaming = StreamingUtil.isStreaming(method.getReturnType());
+        // 接口或实现类可能不是 public 的，关闭访问检查后再转换为方法句柄
+        method.setAccessible(true);
+        this.methodHandle = MethodHandles.lookup().unreflect(method)
+                .bindTo(service)
+                .asSpreader(Object[].class, paramTypes.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+    }
+
+    /**
+     * 调用服务方法，业务异常原样抛出
+     * @param parameters
+     * @return
+     * @throws Throwable
+     */
+    public Object invoke(Object[] parameters) throws Throwable {
+        return (Object) methodHandle.invokeExact(parameters);
+    }
+}
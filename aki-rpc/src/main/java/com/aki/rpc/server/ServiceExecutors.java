@@ -0,0 +1,180 @@
+package com.aki.rpc.server;
+
+import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.config.AkiServiceConfig;
+import com.aki.rpc.netty.handler.AkiRpcThreadFactory;
+import com.aki.rpc.utils.RuntimeUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Auther Akizora
+ * 服务端业务执行器：IO线程解码出请求后，方法调用统一转交此处执行，IO线程只负责收发
+ * - 平台线程模式：固定大小线程池，线程数由 @EnableRpc.serverThreads 指定
+ * - 虚拟线程模式：每个请求一个虚拟线程，并发执行数由 @EnableRpc.maxConcurrency 限制，
+ *   阻塞型服务（JDBC、远程HTTP）不再占满有限的平台线程；JDK不支持虚拟线程时退回平台线程模式
+ * - 舱壁隔离：@AkiService.threads 大于0的服务使用独立且有界的执行器，满载时抛出 RejectedExecutionException，
+ *   由调用方快速拒绝，慢服务不会拖累同一提供方上的其他服务
+ */
+@Slf4j
+public class ServiceExecutors {
+
+    private final Executor defaultExecutor;
+
+    private final ExecutorService platformExecutor;
+
+    private final AkiServiceProvider akiServiceProvider;
+
+    // 是否以虚拟线程执行（配置开启且当前JDK支持）
+    private final boolean virtual;
+
+    // 服务名称 - 该服务独立的执行器，首次调用时创建
+    private final Map<String, Executor> bulkheads = new ConcurrentHashMap<>();
+
+    // 需要在关闭时释放的线程池
+    private final List<ExecutorService> pools = new CopyOnWriteArrayList<>();
+
+    private volatile boolean shutdown;
+
+    public ServiceExecutors(AkiRpcConfig akiRpcConfig, AkiServiceProvider akiServiceProvider) {
+        this.akiServiceProvider = akiServiceProvider;
+
+        // 1.按配置选择执行模式，虚拟线程不可用时由线程工厂退回平台线程
+        AkiRpcThreadFactory threadFactory = new AkiRpcThreadFactory(akiServiceProvider, akiRpcConfig.isVirtualThreads());
+        virtual = threadFactory.isVirtual();
+        if (virtual) {
+            platformExecutor = null;
+            defaultExecutor = new VirtualThreadExecutor(threadFactory, akiRpcConfig.getMaxConcurrency(), -1);
+            log.info("服务端业务执行模式: 虚拟线程, 最大并发 {}", akiRpcConfig.getMaxConcurrency() > 0 ? akiRpcConfig.getMaxConcurrency() : "不限");
+        } else {
+            // 2.平台线程池，threadFactory 为非虚拟时创建平台线程
+            int threads = akiRpcConfig.getServerThreads() > 0 ? akiRpcConfig.getServerThreads() : RuntimeUtil.cpus() * 2;
+            platformExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+            defaultExecutor = platformExecutor;
+            pools.add(platformExecutor);
+            log.info("服务端业务执行模式: 平台线程池, 线程数 {}", threads);
+        }
+    }
+
+    /**
+     * 获取方法调用所使用的执行器，配置了独立线程数的服务使用自己的舱壁执行器
+     * @param invoker
+     * @return
+     */
+    public Executor getExecutor(MethodInvoker invoker) {
+        AkiServiceConfig serviceConfig = invoker.getServiceConfig();
+        if (serviceConfig.getThreads() <= 0) {
+            return defaultExecutor;
+        }
+        Executor bulkhead = bulkheads.get(invoker.getServiceName());
+        if (bulkhead == null) {
+            bulkhead = bulkheads.computeIfAbsent(invoker.getServiceName(), serviceName -> newBulkhead(serviceName, serviceConfig));
+        }
+        return bulkhead;
+    }
+
+    /**
+     * 提交一次方法调用，执行器已关闭或拒绝时抛出 RejectedExecutionException
+     * @param invoker
+     * @param task
+     */
+    public void execute(MethodInvoker invoker, Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("服务端业务执行器已关闭");
+        }
+        getExecutor(invoker).execute(task);
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        for (ExecutorService pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 创建服务独立的有界执行器
+     * - 平台线程：固定线程数 + 有界队列，队列为0时不排队，满载由 AbortPolicy 抛出 RejectedExecutionException
+     * - 虚拟线程：threads 作为并发上限，执行中与等待中的请求合计超过 threads+queueSize 时拒绝
+     * @param serviceName
+     * @param serviceConfig
+     * @return
+     */
+    private Executor newBulkhead(String serviceName, AkiServiceConfig serviceConfig) {
+        int threads = serviceConfig.getThreads();
+        int queueSize = serviceConfig.getQueueSize();
+        log.info("服务{}使用独立执行器, 线程数 {}, 队列 {}", serviceName, threads, queueSize);
+        AkiRpcThreadFactory threadFactory = new AkiRpcThreadFactory(akiServiceProvider, virtual);
+        if (threadFactory.isVirtual()) {
+            return new VirtualThreadExecutor(threadFactory, threads, queueSize);
+        }
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                queue, threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        pools.add(pool);
+        return pool;
+    }
+
+    /**
+     * 每个任务一个虚拟线程，超出并发上限的任务在自己的虚拟线程中等待许可
+     * 虚拟线程等待时会让出载体线程，排队的代价只是一个挂起的虚拟线程
+     * 指定了排队上限时，执行中与等待中的任务合计超出 并发上限+排队上限 即拒绝
+     */
+    private static final class VirtualThreadExecutor implements Executor {
+
+        private final AkiRpcThreadFactory threadFactory;
+
+        // 并发上限，小于等于0时不限制
+        private final Semaphore permits;
+
+        // 执行中与等待中任务数的上限，小于0时不限制
+        private final int maxAdmitted;
+
+        private final AtomicInteger admitted = new AtomicInteger();
+
+        private VirtualThreadExecutor(AkiRpcThreadFactory threadFactory, int maxConcurrency, int maxQueued) {
+            this.threadFactory = threadFactory;
+            this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+            this.maxAdmitted = permits != null && maxQueued >= 0 ? maxConcurrency + maxQueued : -1;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (permits == null) {
+                threadFactory.newThread(task).start();
+                return;
+            }
+            if (maxAdmitted >= 0 && admitted.incrementAndGet() > maxAdmitted) {
+                admitted.decrementAndGet();
+                throw new RejectedExecutionException("服务繁忙，请求被拒绝");
+            }
+            threadFactory.newThread(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                    if (maxAdmitted >= 0) {
+                        admitted.decrementAndGet();
+                    }
+                }
+            }).start();
+        }
+    }
+}
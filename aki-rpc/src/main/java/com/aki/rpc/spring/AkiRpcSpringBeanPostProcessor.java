@@ -3,8 +3,11 @@ package com.aki.rpc.spring;
 import com.aki.rpc.annotation.AkiReference;
 import com.aki.rpc.annotation.AkiService;
 import com.aki.rpc.annotation.EnableRpc;
+import com.aki.rpc.compress.ZstdCompress;
 import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.exception.AkiRpcException;
 import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.metrics.AkiAccessLog;
 import com.aki.rpc.netty.client.NettyClient;
 import com.aki.rpc.proxy.AkiRpcClientProxy;
 import com.aki.rpc.register.nacos.NacosTemplate;
@@ -20,6 +23,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.ServerSocket;
@@ -71,9 +75,34 @@ public class AkiRpcSpringBeanPostProcessor implements BeanPostProcessor, BeanFac
                 akiRpcConfig.setNacosPort(enableRpc.nacosPort());
                 akiRpcConfig.setNacosHost(enableRpc.nacosHost());
                 akiRpcConfig.setNacosGroup(enableRpc.nacosGroup());
+                akiRpcConfig.setCompressThreshold(enableRpc.compressThreshold());
+                akiRpcConfig.setZstdDictionary(enableRpc.zstdDictionary());
+                akiRpcConfig.setTimeout(enableRpc.timeout());
+                akiRpcConfig.setCallbackThreads(enableRpc.callbackThreads());
+                akiRpcConfig.setConnections(enableRpc.connections());
+                akiRpcConfig.setVirtualThreads(enableRpc.virtualThreads());
+                akiRpcConfig.setServerThreads(enableRpc.serverThreads());
+                akiRpcConfig.setMaxConcurrency(enableRpc.maxConcurrency());
+                akiRpcConfig.setAdaptiveLimit(enableRpc.adaptiveLimit());
+                akiRpcConfig.setFlushConsolidation(enableRpc.flushConsolidation());
+                akiRpcConfig.setTransport(enableRpc.transport());
+                akiRpcConfig.setAcceptors(enableRpc.acceptors());
+                akiRpcConfig.setIoThreads(enableRpc.ioThreads());
+                akiRpcConfig.setBacklog(enableRpc.backlog());
+                akiRpcConfig.setReceiveBufferSize(enableRpc.receiveBufferSize());
+                akiRpcConfig.setSendBufferSize(enableRpc.sendBufferSize());
+                akiRpcConfig.setWriteBufferLowWaterMark(enableRpc.writeBufferLowWaterMark());
+                akiRpcConfig.setWriteBufferHighWaterMark(enableRpc.writeBufferHighWaterMark());
+                akiRpcConfig.setPooledAllocator(enableRpc.pooledAllocator());
+                akiRpcConfig.setMaxPendingRequests(enableRpc.maxPendingRequests());
+                akiRpcConfig.setBackpressureFailFast(enableRpc.backpressureFailFast());
+                akiRpcConfig.setAccessLog(enableRpc.accessLog());
+                akiRpcConfig.setAccessLogSampleRate(enableRpc.accessLogSampleRate());
                 nettyClient.setAkiRpcConfig(akiRpcConfig);
                 akiServiceProvider.setAkiRpcConfig(akiRpcConfig);
                 nacosTemplate.init(akiRpcConfig.getNacosHost(),akiRpcConfig.getNacosPort());
+                loadZstdDictionary(akiRpcConfig.getZstdDictionary());
+                SingletonFactory.getInstance(AkiAccessLog.class).start(akiRpcConfig);
 
             }
         }
@@ -166,6 +195,23 @@ public class AkiRpcSpringBeanPostProcessor implements BeanPostProcessor, BeanFac
         }
     }
 
+    /**
+     * 从classpath加载zstd预训练字典
+     * @param path
+     */
+    private void loadZstdDictionary(String path) throws IOException {
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        try (InputStream inputStream = ClassUtils.getDefaultClassLoader().getResourceAsStream(path)) {
+            if (inputStream == null) {
+                throw new AkiRpcException("未找到zstd字典文件:" + path);
+            }
+            ZstdCompress.loadDictionary(inputStream.readAllBytes());
+            log.info("@EnableRpc: 已加载zstd字典 {}", path);
+        }
+    }
+
     private int findRandomAvailablePort() {
         try (ServerSocket serverSocket = new ServerSocket(0)) {
             return serverSocket.getLocalPort();
@@ -0,0 +1,37 @@
+package com.aki.rpc.utils;
+
+import com.aki.rpc.exception.AkiRpcException;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * @Auther akizora
+ * 流式方法的判定，服务端（MethodInvoker）与客户端（AkiRpcClientProxy）共用，保证两端对同一方法的判定一致
+ * 只有返回值声明为 Stream/Iterator/Flow.Publisher 本身的方法才是流式方法；客户端只能构造这三种类型的结果
+ */
+public class StreamingUtil {
+
+    public static boolean isStreaming(Class<?> returnType) {
+        return returnType == Stream.class || returnType == Iterator.class || returnType == Flow.Publisher.class;
+    }
+
+    /**
+     * 发布服务时校验：返回值为上述类型的子类型（如 ListIterator、SubmissionPublisher）时两端都无法按流式处理，
+     * 也无法作为普通结果序列化，直接拒绝发布
+     * @param method
+     */
+    public static void checkReturnType(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (isStreaming(returnType)) {
+            return;
+        }
+        if (Stream.class.isAssignableFrom(returnType) || Iterator.class.isAssignableFrom(returnType)
+                || Flow.Publisher.class.isAssignableFrom(returnType)) {
+            throw new AkiRpcException("流式方法的返回值只能声明为 Stream/Iterator/Flow.Publisher: "
+                    + method.getDeclaringClass().getName() + "." + method.getName() + " 返回 " + returnType.getName());
+        }
+    }
+}
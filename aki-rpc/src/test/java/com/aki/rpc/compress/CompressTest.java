@@ -0,0 +1,129 @@
+package com.aki.rpc.compress;
+
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.exception.AkiRpcException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @Auther akizora
+ * LZ4 / Zstd：byte[] 与 ByteBuf（堆内、堆外）路径的往返，以及伪造原始长度前缀的拒绝
+ */
+class CompressTest {
+
+    private static final List<Compress> COMPRESSES = Arrays.asList(new Lz4Compress(), new ZstdCompress());
+
+    @Test
+    void byteArrayRoundTrip() {
+        byte[] data = data(64 * 1024);
+        for (Compress compress : COMPRESSES) {
+            assertArrayEquals(data, compress.decompress(compress.compress(data)), compress.name());
+            assertArrayEquals(new byte[0], compress.decompress(compress.compress(new byte[0])), compress.name());
+        }
+    }
+
+    @Test
+    void byteBufRoundTrip() {
+        byte[] data = data(64 * 1024);
+        for (Compress compress : COMPRESSES) {
+            for (boolean direct : new boolean[]{false, true}) {
+                ByteBuf in = buffer(direct, data.length).writeBytes(data);
+                ByteBuf compressed = buffer(direct, data.length);
+                ByteBuf out = buffer(direct, data.length);
+                try {
+                    compress.compress(in, compressed);
+                    compress.decompress(compressed, out);
+                    assertArrayEquals(data, bytes(out), compress.name() + (direct ? "/direct" : "/heap"));
+                } finally {
+                    in.release();
+                    compressed.release();
+                    out.release();
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectOversizedLengthPrefix() {
+        for (Compress compress : COMPRESSES) {
+            // 仅 16 字节的载荷声明约 2GB 的原始长度，须在申请内存前被拒绝
+            byte[] forged = compress.compress(data(16));
+            writeLength(forged, Integer.MAX_VALUE - 8);
+            assertThrows(AkiRpcException.class, () -> compress.decompress(forged), compress.name());
+
+            byte[] overLimit = compress.compress(data(16));
+            writeLength(overLimit, AkiRpcConstants.MAX_FRAME_LENGTH + 1);
+            assertThrows(AkiRpcException.class, () -> compress.decompress(overLimit), compress.name());
+
+            for (boolean direct : new boolean[]{false, true}) {
+                ByteBuf in = buffer(direct, forged.length).writeBytes(forged);
+                ByteBuf out = buffer(direct, 64);
+                try {
+                    assertThrows(AkiRpcException.class, () -> compress.decompress(in, out), compress.name());
+                } finally {
+                    in.release();
+                    out.release();
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectMismatchedLengthPrefix() {
+        for (Compress compress : COMPRESSES) {
+            // 声明的长度大于实际解压出的长度
+            byte[] inflated = compress.compress(data(1024));
+            writeLength(inflated, 2048);
+            assertThrows(AkiRpcException.class, () -> compress.decompress(inflated), compress.name());
+
+            // 声明的长度小于实际解压出的长度
+            byte[] deflated = compress.compress(data(1024));
+            writeLength(deflated, 512);
+            assertThrows(AkiRpcException.class, () -> compress.decompress(deflated), compress.name());
+
+            for (boolean direct : new boolean[]{false, true}) {
+                ByteBuf in = buffer(direct, inflated.length).writeBytes(inflated);
+                ByteBuf out = buffer(direct, 4096);
+                try {
+                    assertThrows(AkiRpcException.class, () -> compress.decompress(in, out), compress.name());
+                } finally {
+                    in.release();
+                    out.release();
+                }
+            }
+        }
+    }
+
+    private static ByteBuf buffer(boolean direct, int capacity) {
+        return direct ? Unpooled.directBuffer(capacity) : Unpooled.buffer(capacity);
+    }
+
+    private static byte[] bytes(ByteBuf buf) {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+
+    private static void writeLength(byte[] dest, int length) {
+        dest[0] = (byte) (length >>> 24);
+        dest[1] = (byte) (length >>> 16);
+        dest[2] = (byte) (length >>> 8);
+        dest[3] = (byte) length;
+    }
+
+    // 半重复的数据，既可压缩又不至于退化
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ((i * 31) % 97);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,46 @@
+package com.aki.rpc.config;
+
+import com.aki.rpc.annotation.AkiReference;
+import com.aki.rpc.exception.AkiRpcException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @Auther akizora
+ * @AkiReference 的 hashArguments 解析与校验
+ */
+class AkiReferenceConfigTest {
+
+    @AkiReference(loadBalance = "consistenthash", hashArguments = {"findGoods:1", " listGoods : 0 "})
+    private Object valid;
+
+    @AkiReference(loadBalance = "consistenthash", hashArguments = {"findGoods:first"})
+    private Object nonNumeric;
+
+    @AkiReference(loadBalance = "consistenthash", hashArguments = {"findGoods:-1"})
+    private Object negative;
+
+    @AkiReference(loadBalance = "consistenthash", hashArguments = {"findGoods"})
+    private Object missingIndex;
+
+    @Test
+    void parsesHashArguments() throws Exception {
+        AkiReferenceConfig config = AkiReferenceConfig.from(reference("valid"));
+        assertEquals(1, config.getHashArgument("findGoods"));
+        assertEquals(0, config.getHashArgument("listGoods"));
+        assertEquals(0, config.getHashArgument("other"));
+    }
+
+    @Test
+    void rejectsInvalidHashArguments() {
+        assertThrows(AkiRpcException.class, () -> AkiReferenceConfig.from(reference("nonNumeric")));
+        assertThrows(AkiRpcException.class, () -> AkiReferenceConfig.from(reference("negative")));
+        assertThrows(AkiRpcException.class, () -> AkiReferenceConfig.from(reference("missingIndex")));
+    }
+
+    private static AkiReference reference(String field) throws NoSuchFieldException {
+        return AkiReferenceConfigTest.class.getDeclaredField(field).getAnnotation(AkiReference.class);
+    }
+}
@@ -0,0 +1,93 @@
+package com.aki.rpc.loadbalance;
+
+import com.aki.rpc.config.AkiReferenceConfig;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.register.ProviderInstance;
+import com.aki.rpc.register.ProviderStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Auther akizora
+ * 一致性哈希：相同参数的路由稳定性，以及新增实例时的迁移比例
+ */
+class ConsistentHashLoadBalancerTest {
+
+    private static final String SERVICE = "com.aki.rpc.GoodsService1.0";
+    private static final int KEYS = 20000;
+
+    private final AkiReferenceConfig config = new AkiReferenceConfig();
+
+    @Test
+    void sameKeyAlwaysRoutesToSameInstance() {
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer();
+        ProviderInstance[] instances = instances(4);
+        // 内容相同的另一份快照单独建环，路由仍保持不变
+        ProviderInstance[] rebuilt = Arrays.copyOf(instances, instances.length);
+        for (int i = 0; i < 1000; i++) {
+            AkiRequest akiRequest = request("goods-" + i);
+            ProviderInstance first = loadBalancer.select(SERVICE, instances, akiRequest, config);
+            assertSame(first, loadBalancer.select(SERVICE, instances, akiRequest, config));
+            assertSame(first, loadBalancer.select(SERVICE + "#rebuilt", rebuilt, akiRequest, config));
+        }
+    }
+
+    @Test
+    void addingInstanceRemapsAboutItsShare() {
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer();
+        ProviderInstance[] before = instances(5);
+        ProviderInstance[] after = Arrays.copyOf(before, 5);
+        before = Arrays.copyOf(before, 4);
+        ProviderInstance added = after[4];
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            AkiRequest akiRequest = request("goods-" + i);
+            ProviderInstance from = loadBalancer.select(SERVICE, before, akiRequest, config);
+            ProviderInstance to = loadBalancer.select(SERVICE + "#after", after, akiRequest, config);
+            if (from != to) {
+                moved++;
+                // 只有划给新实例的区段会迁移，其余实例之间不发生迁移
+                assertSame(added, to);
+            }
+        }
+        // 4 -> 5 个等权实例，理论迁移比例为 1/5
+        double ratio = (double) moved / KEYS;
+        assertTrue(ratio > 0.12 && ratio < 0.28, "迁移比例: " + ratio);
+    }
+
+    @Test
+    void outOfRangeHashArgumentFallsBackToMethodName() {
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer();
+        ProviderInstance[] instances = instances(4);
+        AkiReferenceConfig negative = new AkiReferenceConfig();
+        negative.getHashArguments().put("findGoods", -1);
+        AkiReferenceConfig overflow = new AkiReferenceConfig();
+        overflow.getHashArguments().put("findGoods", 3);
+        ProviderInstance expected = loadBalancer.select(SERVICE, instances, request("a"), negative);
+        assertEquals(expected, loadBalancer.select(SERVICE, instances, request("b"), negative));
+        assertEquals(expected, loadBalancer.select(SERVICE, instances, request("c"), overflow));
+    }
+
+    private static ProviderInstance[] instances(int count) {
+        ProviderInstance[] instances = new ProviderInstance[count];
+        for (int i = 0; i < count; i++) {
+            instances[i] = new ProviderInstance("10.0.0." + (i + 1), 9000, 100, new ProviderStats());
+        }
+        return instances;
+    }
+
+    private static AkiRequest request(String key) {
+        return AkiRequest.builder()
+                .interfaceName("com.aki.rpc.GoodsService")
+                .methodName("findGoods")
+                .version("1.0")
+                .parameters(new Object[]{key})
+                .build();
+    }
+}
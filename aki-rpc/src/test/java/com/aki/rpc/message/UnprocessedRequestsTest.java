@@ -0,0 +1,128 @@
+package com.aki.rpc.message;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Auther akizora
+ * UnprocessedRequests：准入时原子预留等待名额，并发调用方不会越过 maxPendingRequests；名额随移除归还
+ */
+class UnprocessedRequestsTest {
+
+    private static final int MAX_PENDING = 8;
+
+    @Test
+    void concurrentReservationsNeverExceedLimit() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        UnprocessedRequests unprocessedRequests = new UnprocessedRequests();
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        if (unprocessedRequests.tryReserve(channel, MAX_PENDING)) {
+                            reserved.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(MAX_PENDING, reserved.get());
+        assertEquals(MAX_PENDING, unprocessedRequests.size());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void registeredRequestReturnsSlotOnce() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        UnprocessedRequests unprocessedRequests = new UnprocessedRequests();
+        for (int i = 0; i < MAX_PENDING; i++) {
+            assertTrue(unprocessedRequests.tryReserve(channel, MAX_PENDING));
+        }
+        assertFalse(unprocessedRequests.tryReserve(channel, MAX_PENDING));
+
+        // 登记不再重复计数，完成后归还；重复移除（如超时与响应竞争）只归还一次
+        CompletableFuture<AkiResponse<Object>> future = new CompletableFuture<>();
+        int requestId = unprocessedRequests.put(future);
+        assertEquals(MAX_PENDING, unprocessedRequests.size());
+        unprocessedRequests.complete(requestId, AkiResponse.success(null));
+        assertTrue(future.isDone());
+        assertNull(unprocessedRequests.remove(requestId));
+        assertEquals(MAX_PENDING - 1, unprocessedRequests.size());
+
+        // 预留后未登记即放弃
+        unprocessedRequests.release();
+        assertEquals(MAX_PENDING - 2, unprocessedRequests.size());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void failAllKeepsUnregisteredReservations() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        UnprocessedRequests unprocessedRequests = new UnprocessedRequests();
+        CompletableFuture<AkiResponse<Object>> first = new CompletableFuture<>();
+        CompletableFuture<AkiResponse<Object>> second = new CompletableFuture<>();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(unprocessedRequests.tryReserve(channel, MAX_PENDING));
+        }
+        unprocessedRequests.put(first);
+        unprocessedRequests.put(second);
+
+        // 第三个名额已预留但尚未登记，由其发送方在 EventLoop 中发现连接关闭后自行归还
+        unprocessedRequests.failAll(new IllegalStateException("closed"));
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(1, unprocessedRequests.size());
+        unprocessedRequests.release();
+        assertEquals(0, unprocessedRequests.size());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void awaitReserveWakesOnRelease() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        UnprocessedRequests unprocessedRequests = new UnprocessedRequests();
+        assertTrue(unprocessedRequests.tryReserve(channel, 1));
+        assertFalse(unprocessedRequests.awaitReserve(channel, 1, TimeUnit.MILLISECONDS.toNanos(20)));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> waiter = executor.submit(() -> unprocessedRequests.awaitReserve(channel, 1, TimeUnit.SECONDS.toNanos(10)));
+            Thread.sleep(50);
+            assertFalse(waiter.isDone());
+            unprocessedRequests.release();
+            assertTrue(waiter.get(5, TimeUnit.SECONDS));
+            assertEquals(1, unprocessedRequests.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        channel.finishAndReleaseAll();
+    }
+}
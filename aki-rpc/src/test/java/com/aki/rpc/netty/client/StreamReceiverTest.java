@@ -0,0 +1,156 @@
+package com.aki.rpc.netty.client;
+
+import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.exception.AkiRpcException;
+import com.aki.rpc.exception.AkiRpcTimeoutException;
+import com.aki.rpc.message.AkiMessage;
+import com.aki.rpc.message.AkiResponse;
+import com.aki.rpc.message.AkiStreamCredit;
+import com.aki.rpc.message.UnprocessedRequests;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Auther akizora
+ * StreamReceiver：每消费半个窗口补充同等信用，结束后不再补充；提前关闭时发送取消并归还等待名额
+ */
+class StreamReceiverTest {
+
+    private static final int WINDOW = 8;
+
+    private EmbeddedChannel channel;
+    private UnprocessedRequests unprocessedRequests;
+    private StreamReceiver streamReceiver;
+
+    @BeforeEach
+    void setUp() {
+        channel = new EmbeddedChannel();
+        unprocessedRequests = new UnprocessedRequests();
+        streamReceiver = new StreamReceiver(channel, unprocessedRequests, WINDOW, 200);
+        assertTrue(unprocessedRequests.tryReserve(channel, 0));
+        streamReceiver.setRequestId(unprocessedRequests.putStream(streamReceiver));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void grantsCreditEveryHalfWindow() {
+        streamReceiver.onChunk(items(0, WINDOW));
+
+        // 消费不足半个窗口不补充
+        for (int i = 0; i < WINDOW / 2 - 1; i++) {
+            assertEquals(i, streamReceiver.next());
+        }
+        assertTrue(credits().isEmpty());
+
+        // 消费满半个窗口补充同等信用
+        assertEquals(WINDOW / 2 - 1, streamReceiver.next());
+        assertEquals(List.of(WINDOW / 2), credits());
+
+        streamReceiver.onChunk(items(WINDOW, WINDOW / 2));
+        for (int i = WINDOW / 2; i < WINDOW + WINDOW / 2; i++) {
+            assertEquals(i, streamReceiver.next());
+        }
+        assertEquals(List.of(WINDOW / 2, WINDOW / 2), credits());
+    }
+
+    @Test
+    void noCreditAfterEnd() {
+        streamReceiver.onChunk(items(0, WINDOW));
+        streamReceiver.onEnd(AkiResponse.success(null));
+        int count = 0;
+        while (streamReceiver.hasNext()) {
+            streamReceiver.next();
+            count++;
+        }
+        assertEquals(WINDOW, count);
+        assertTrue(credits().isEmpty());
+        assertTrue(streamReceiver.isFinished());
+        assertTrue(streamReceiver.getEndFuture().isDone());
+    }
+
+    @Test
+    void failedEndSurfacesAfterBufferedItems() {
+        streamReceiver.onChunk(items(0, 2));
+        streamReceiver.onEnd(AkiResponse.fail("boom"));
+
+        // 失败前到达的元素仍可取出，之后抛出失败原因
+        assertEquals(0, streamReceiver.next());
+        assertEquals(1, streamReceiver.next());
+        AkiRpcException e = assertThrows(AkiRpcException.class, streamReceiver::hasNext);
+        assertTrue(e.getMessage().contains("boom"));
+        assertTrue(streamReceiver.getEndFuture().isCompletedExceptionally());
+    }
+
+    @Test
+    void closeSendsCancelAndReleasesSlot() {
+        streamReceiver.onChunk(items(0, 3));
+        streamReceiver.next();
+        streamReceiver.close();
+        channel.runPendingTasks();
+
+        AkiMessage akiMessage = channel.readOutbound();
+        AkiStreamCredit credit = (AkiStreamCredit) akiMessage.getData();
+        assertEquals(MessageTypeEnum.STREAM_CREDIT.getCode(), akiMessage.getMessageType());
+        assertEquals(streamReceiver.getRequestId(), akiMessage.getRequestId());
+        assertTrue(credit.isCancel());
+        assertNull(unprocessedRequests.getStream(streamReceiver.getRequestId()));
+        assertEquals(0, unprocessedRequests.size());
+
+        // 关闭后丢弃剩余元素，之后到达的数据块被忽略
+        streamReceiver.onChunk(items(3, 2));
+        assertFalse(streamReceiver.hasNext());
+        assertTrue(streamReceiver.getEndFuture().isCompletedExceptionally());
+    }
+
+    @Test
+    void closeAfterEndSendsNothing() {
+        unprocessedRequests.removeStream(streamReceiver.getRequestId());
+        streamReceiver.onEnd(AkiResponse.success(null));
+        streamReceiver.close();
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    void waitingTooLongCancelsStream() {
+        AkiRpcTimeoutException e = assertThrows(AkiRpcTimeoutException.class, streamReceiver::hasNext);
+        assertTrue(e.getMessage().contains("200ms"));
+        channel.runPendingTasks();
+        AkiMessage akiMessage = channel.readOutbound();
+        assertTrue(((AkiStreamCredit) akiMessage.getData()).isCancel());
+    }
+
+    private List<Integer> credits() {
+        List<Integer> credits = new ArrayList<>();
+        AkiMessage akiMessage;
+        while ((akiMessage = channel.readOutbound()) != null) {
+            AkiStreamCredit credit = (AkiStreamCredit) akiMessage.getData();
+            assertFalse(credit.isCancel());
+            credits.add(credit.getCredits());
+        }
+        return credits;
+    }
+
+    private static List<Object> items(int from, int count) {
+        List<Object> items = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,191 @@
+package com.aki.rpc.netty.codec;
+
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.constant.SerializationTypeEnum;
+import com.aki.rpc.message.AkiMessage;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.message.AkiResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @Auther akizora
+ * 编码器 -> 解码器 往返：各压缩类型在压缩阈值两侧的帧头压缩类型与消息内容
+ */
+class AkiRpcCodecTest {
+
+    // 帧头中 compress 字段的偏移量
+    private static final int COMPRESS_OFFSET = 11;
+    private static final int THRESHOLD = 1024;
+
+    private static final CompressTypeEnum[] COMPRESS_TYPES = {
+            CompressTypeEnum.NONE, CompressTypeEnum.GZIP, CompressTypeEnum.LZ4, CompressTypeEnum.ZSTD};
+
+    @Test
+    void requestRoundTripForEachCompressType() {
+        for (CompressTypeEnum compressType : COMPRESS_TYPES) {
+            // 低于阈值：不压缩，帧头改写为 NONE
+            roundTrip(compressType, 64, CompressTypeEnum.NONE);
+            // 达到阈值：按指定类型压缩（NONE 仍为 NONE）
+            roundTrip(compressType, 16 * 1024, compressType);
+        }
+    }
+
+    @Test
+    void incompressibleBodyFallsBackToNone() {
+        // 随机字节几乎无法压缩，压缩结果不小于原文时应原样发送并将帧头改写为 NONE
+        byte[] random = new byte[16 * 1024];
+        new Random(11).nextBytes(random);
+        for (CompressTypeEnum compressType : COMPRESS_TYPES) {
+            EmbeddedChannel encoder = new EmbeddedChannel(new AkiRpcEncoder(THRESHOLD));
+            EmbeddedChannel decoder = new EmbeddedChannel(new AkiRpcDecoder());
+            AkiResponse<Object> akiResponse = AkiResponse.success(random);
+            encoder.writeOutbound(message(MessageTypeEnum.RESPONSE, compressType, 9, akiResponse));
+            ByteBuf frame = encoder.readOutbound();
+            assertEquals(CompressTypeEnum.NONE.getCode(), frame.getByte(frame.readerIndex() + COMPRESS_OFFSET),
+                    compressType.name());
+
+            decoder.writeInbound(frame);
+            AkiMessage decoded = decoder.readInbound();
+            assertArrayEquals(random, (byte[]) ((AkiResponse<?>) decoded.getData()).getData(), compressType.name());
+            encoder.finishAndReleaseAll();
+            decoder.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    void responseRoundTrip() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new AkiRpcEncoder(THRESHOLD));
+        EmbeddedChannel decoder = new EmbeddedChannel(new AkiRpcDecoder());
+        AkiResponse<Object> akiResponse = AkiResponse.success(payload(4096));
+        encoder.writeOutbound(message(MessageTypeEnum.RESPONSE, CompressTypeEnum.LZ4, 42, akiResponse));
+        ByteBuf frame = encoder.readOutbound();
+        decoder.writeInbound(frame);
+
+        AkiMessage decoded = decoder.readInbound();
+        assertEquals(42, decoded.getRequestId());
+        AkiResponse<?> result = (AkiResponse<?>) decoded.getData();
+        assertEquals(akiResponse.getCode(), result.getCode());
+        assertEquals(akiResponse.getData(), result.getData());
+        encoder.finishAndReleaseAll();
+        decoder.finishAndReleaseAll();
+    }
+
+    @Test
+    void decodeFromHeapAndCompositeFrames() {
+        for (CompressTypeEnum compressType : COMPRESS_TYPES) {
+            for (int payloadSize : new int[]{64, 16 * 1024}) {
+                String label = compressType + "/" + payloadSize;
+                AkiRequest akiRequest = request(payload(payloadSize));
+                byte[] frame = encode(message(MessageTypeEnum.REQUEST, compressType, 7, akiRequest));
+
+                // 堆内入站缓冲区
+                assertRequest(akiRequest, decode(Unpooled.wrappedBuffer(frame)), label + "/heap");
+
+                // 复合入站缓冲区：帧被拆在两个组件中，消息体跨越组件边界
+                int split = frame.length / 2;
+                CompositeByteBuf composite = Unpooled.compositeBuffer();
+                composite.addComponent(true, Unpooled.wrappedBuffer(frame, 0, split));
+                composite.addComponent(true, Unpooled.wrappedBuffer(frame, split, frame.length - split));
+                assertRequest(akiRequest, decode(composite), label + "/composite");
+
+                // 分两次到达：由解码器累积成完整帧
+                EmbeddedChannel decoder = new EmbeddedChannel(new AkiRpcDecoder());
+                decoder.writeInbound(Unpooled.wrappedBuffer(frame, 0, split));
+                assertNull(decoder.readInbound(), label + "/partial");
+                decoder.writeInbound(Unpooled.wrappedBuffer(frame, split, frame.length - split));
+                assertRequest(akiRequest, decoder.readInbound(), label + "/split");
+                decoder.finishAndReleaseAll();
+            }
+        }
+    }
+
+    private static byte[] encode(AkiMessage akiMessage) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new AkiRpcEncoder(THRESHOLD));
+        encoder.writeOutbound(akiMessage);
+        ByteBuf frame = encoder.readOutbound();
+        byte[] bytes = new byte[frame.readableBytes()];
+        frame.readBytes(bytes);
+        frame.release();
+        encoder.finishAndReleaseAll();
+        return bytes;
+    }
+
+    private static AkiMessage decode(ByteBuf frame) {
+        EmbeddedChannel decoder = new EmbeddedChannel(new AkiRpcDecoder());
+        decoder.writeInbound(frame);
+        AkiMessage decoded = decoder.readInbound();
+        decoder.finishAndReleaseAll();
+        return decoded;
+    }
+
+    private static void roundTrip(CompressTypeEnum compressType, int payloadSize, CompressTypeEnum expectedOnWire) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new AkiRpcEncoder(THRESHOLD));
+        EmbeddedChannel decoder = new EmbeddedChannel(new AkiRpcDecoder());
+        AkiRequest akiRequest = request(payload(payloadSize));
+        encoder.writeOutbound(message(MessageTypeEnum.REQUEST, compressType, 7, akiRequest));
+        ByteBuf frame = encoder.readOutbound();
+
+        String label = compressType + "/" + payloadSize;
+        assertEquals(expectedOnWire.getCode(), frame.getByte(frame.readerIndex() + COMPRESS_OFFSET), label);
+        assertEquals(frame.readableBytes(), frame.getInt(frame.readerIndex() + 5), label);
+
+        decoder.writeInbound(frame);
+        AkiMessage decoded = decoder.readInbound();
+        assertNotNull(decoded, label);
+        assertRequest(akiRequest, decoded, label);
+        encoder.finishAndReleaseAll();
+        decoder.finishAndReleaseAll();
+    }
+
+    static void assertRequest(AkiRequest expected, AkiMessage decoded, String label) {
+        assertEquals(MessageTypeEnum.REQUEST.getCode(), decoded.getMessageType(), label);
+        assertEquals(7, decoded.getRequestId(), label);
+        AkiRequest actual = (AkiRequest) decoded.getData();
+        assertEquals(expected.getInterfaceName(), actual.getInterfaceName(), label);
+        assertEquals(expected.getMethodName(), actual.getMethodName(), label);
+        assertEquals(expected.getVersion(), actual.getVersion(), label);
+        assertArrayEquals(expected.getParamTypes(), actual.getParamTypes(), label);
+        assertArrayEquals(expected.getParameters(), actual.getParameters(), label);
+    }
+
+    static AkiMessage message(MessageTypeEnum messageType, CompressTypeEnum compressType, int requestId, Object data) {
+        return AkiMessage.builder()
+                .messageType(messageType.getCode())
+                .codec(SerializationTypeEnum.PROTO_STUFF.getCode())
+                .compress(compressType.getCode())
+                .requestId(requestId)
+                .data(data)
+                .build();
+    }
+
+    static AkiRequest request(String payload) {
+        return AkiRequest.builder()
+                .interfaceName("com.aki.rpc.GoodsService")
+                .methodName("findGoods")
+                .version("1.0")
+                .paramTypes(new Class<?>[]{String.class, int.class})
+                .parameters(new Object[]{payload, 3})
+                .build();
+    }
+
+    // 可压缩的文本负载
+    static String payload(int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = (char) ('a' + i % 7);
+        }
+        return new String(chars);
+    }
+}
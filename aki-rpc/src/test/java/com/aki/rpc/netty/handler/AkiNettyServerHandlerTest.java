@@ -0,0 +1,76 @@
+package com.aki.rpc.netty.handler;
+
+import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.constant.CompressTypeEnum;
+import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.constant.ResponseCodeEnum;
+import com.aki.rpc.constant.SerializationTypeEnum;
+import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.message.AkiMessage;
+import com.aki.rpc.message.AkiRequest;
+import com.aki.rpc.message.AkiResponse;
+import com.aki.rpc.server.AkiServiceProvider;
+import com.aki.rpc.server.ServiceExecutors;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * @Auther akizora
+ * AkiNettyServerHandler：找不到调用器的请求同样以失败帧回复，流式请求以结束帧回复
+ */
+class AkiNettyServerHandlerTest {
+
+    private EmbeddedChannel channel;
+    private ServiceExecutors serviceExecutors;
+
+    @BeforeEach
+    void setUp() {
+        serviceExecutors = new ServiceExecutors(new AkiRpcConfig(), SingletonFactory.getInstance(AkiServiceProvider.class));
+        channel = new EmbeddedChannel(new AkiNettyServerHandler(serviceExecutors, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+        serviceExecutors.shutdown();
+    }
+
+    @Test
+    void unknownMethodAnsweredWithFailResponse() {
+        channel.writeInbound(request(11, AkiRequest.builder().methodId(9999).parameters(new Object[0]).build()));
+        assertFail(channel.readOutbound(), 11, MessageTypeEnum.RESPONSE);
+
+        channel.writeInbound(request(12, AkiRequest.builder()
+                .interfaceName("com.aki.rpc.Missing").methodName("find").version("1.0")
+                .paramTypes(new Class<?>[0]).parameters(new Object[0]).build()));
+        assertFail(channel.readOutbound(), 12, MessageTypeEnum.RESPONSE);
+    }
+
+    @Test
+    void unknownStreamingMethodAnsweredWithFailEnd() {
+        channel.writeInbound(request(13, AkiRequest.builder().methodId(9999).parameters(new Object[0]).streamCredits(64).build()));
+        assertFail(channel.readOutbound(), 13, MessageTypeEnum.STREAM_END);
+    }
+
+    private static AkiMessage request(int requestId, AkiRequest akiRequest) {
+        return AkiMessage.builder()
+                .messageType(MessageTypeEnum.REQUEST.getCode())
+                .codec(SerializationTypeEnum.PROTO_STUFF.getCode())
+                .compress(CompressTypeEnum.NONE.getCode())
+                .requestId(requestId)
+                .data(akiRequest)
+                .build();
+    }
+
+    private static void assertFail(AkiMessage akiMessage, int requestId, MessageTypeEnum messageType) {
+        assertNotNull(akiMessage);
+        assertEquals(requestId, akiMessage.getRequestId());
+        assertEquals(messageType.getCode(), akiMessage.getMessageType());
+        assertEquals(ResponseCodeEnum.FAIL.getCode(), ((AkiResponse<?>) akiMessage.getData()).getCode());
+    }
+}
@@ -0,0 +1,306 @@
+package com.aki.rpc.netty.handler;
+
+import com.aki.rpc.config.AkiRpcConfig;
+import com.aki.rpc.config.AkiServiceConfig;
+import com.aki.rpc.constant.AkiRpcConstants;
+import com.aki.rpc.constant.MessageTypeEnum;
+import com.aki.rpc.constant.ResponseCodeEnum;
+import com.aki.rpc.constant.SerializationTypeEnum;
+import com.aki.rpc.factory.SingletonFactory;
+import com.aki.rpc.message.AkiMessage;
+import com.aki.rpc.message.AkiResponse;
+import com.aki.rpc.message.AkiStreamChunk;
+import com.aki.rpc.server.AkiServiceProvider;
+import com.aki.rpc.server.MethodInvoker;
+import com.aki.rpc.server.ServiceExecutors;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Auther akizora
+ * StreamEmitter：在 EmbeddedChannel 上按信用发送数据块，信用耗尽即暂停、补充后恢复；取消、数据源出错与发布者形式
+ * 拉取任务在提交线程中同步执行，便于逐步断言
+ */
+class StreamEmitterTest {
+
+    private static final int REQUEST_ID = 7;
+
+    private EmbeddedChannel channel;
+    private AkiNettyServerHandler handler;
+    private ChannelHandlerContext ctx;
+    private ServiceExecutors serviceExecutors;
+    private MethodInvoker invoker;
+    // 所有已发送的数据块中的元素，用于检查顺序与总数
+    private final List<Object> sent = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        serviceExecutors = new ServiceExecutors(new AkiRpcConfig(), SingletonFactory.getInstance(AkiServiceProvider.class)) {
+            @Override
+            public void execute(MethodInvoker invoker, Runnable task) {
+                task.run();
+            }
+        };
+        handler = new AkiNettyServerHandler(serviceExecutors, null);
+        channel = new EmbeddedChannel(handler);
+        ctx = channel.pipeline().context(handler);
+        invoker = new MethodInvoker(1, Rows.class.getName(), new AkiServiceConfig(), new Rows() {
+            @Override
+            public Iterator<Integer> rows() {
+                return null;
+            }
+        }, Rows.class.getMethod("rows"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+        serviceExecutors.shutdown();
+    }
+
+    @Test
+    void sendsOnlyWithinCreditsAndResumesOnGrant() {
+        CountingIterator source = new CountingIterator(100, -1);
+        StreamEmitter emitter = emitter(40);
+        emitter.start(source);
+
+        // 40 个信用：一个满块加一个 8 元素的块，随后暂停，数据源不被多拉取
+        assertEquals(List.of(32, 8), chunkSizes(drain()));
+        assertEquals(40, source.pulled);
+
+        // 信用为 0 时补充 0 个不会恢复
+        emitter.addCredits(0);
+        assertTrue(drain().isEmpty());
+
+        emitter.addCredits(5);
+        assertEquals(List.of(5), chunkSizes(drain()));
+        assertEquals(45, source.pulled);
+
+        // 剩余 55 个元素，信用充足：按块发送后以成功结束帧收尾，并关闭数据源
+        emitter.addCredits(100);
+        List<AkiMessage> messages = drain();
+        assertEquals(List.of(32, 23), chunkSizes(messages));
+        assertEnd(messages.get(messages.size() - 1), ResponseCodeEnum.SUCCESS.getCode());
+        assertTrue(source.closed);
+        assertEquals(List.of(0, 1, 2), firstItems(3));
+    }
+
+    @Test
+    void cancelClosesSourceWithoutEndFrame() {
+        CountingIterator source = new CountingIterator(1000, -1);
+        StreamEmitter emitter = emitter(10);
+        emitter.start(source);
+        assertEquals(List.of(10), chunkSizes(drain()));
+
+        // 暂停期间取消：立即关闭数据源，不发送结束帧，之后的信用被忽略
+        emitter.cancel();
+        assertTrue(source.closed);
+        emitter.addCredits(50);
+        assertTrue(drain().isEmpty());
+        assertEquals(10, source.pulled);
+    }
+
+    @Test
+    void sourceFailureFlushesPulledItemsThenFails() {
+        CountingIterator source = new CountingIterator(100, 37);
+        StreamEmitter emitter = emitter(AkiRpcConstants.STREAM_WINDOW);
+        emitter.start(source);
+
+        List<AkiMessage> messages = drain();
+        // 出错前已拉取的 37 个元素先发出，再以失败结束
+        assertEquals(List.of(32, 5), chunkSizes(messages));
+        AkiMessage end = messages.get(messages.size() - 1);
+        assertEnd(end, ResponseCodeEnum.FAIL.getCode());
+        assertEquals("boom at 37", ((AkiResponse<?>) end.getData()).getMessage());
+        assertTrue(source.closed);
+    }
+
+    @Test
+    void methodFailureEndsStreamWithoutChunks() {
+        StreamEmitter emitter = emitter(AkiRpcConstants.STREAM_WINDOW);
+        emitter.fail(new IllegalArgumentException("bad n"));
+
+        List<AkiMessage> messages = drain();
+        assertEquals(1, messages.size());
+        assertEnd(messages.get(0), ResponseCodeEnum.FAIL.getCode());
+
+        // 已结束的流不再响应信用
+        emitter.addCredits(10);
+        assertTrue(drain().isEmpty());
+    }
+
+    @Test
+    void publisherIsDrivenByCredits() {
+        RecordingPublisher publisher = new RecordingPublisher(100);
+        StreamEmitter emitter = emitter(40);
+        emitter.start(publisher);
+
+        // 初始信用直接转换为 request(40)，推送的元素在 EventLoop 中合并为数据块
+        channel.runPendingTasks();
+        assertEquals(List.of(40L), publisher.requests);
+        assertEquals(List.of(32, 8), chunkSizes(drain()));
+
+        emitter.addCredits(70);
+        channel.runPendingTasks();
+        assertEquals(List.of(40L, 70L), publisher.requests);
+        assertEquals(List.of(32, 28), chunkSizes(drain()));
+
+        // 发布者结束：发送成功结束帧
+        publisher.complete();
+        channel.runPendingTasks();
+        List<AkiMessage> messages = drain();
+        assertEquals(1, messages.size());
+        assertEnd(messages.get(0), ResponseCodeEnum.SUCCESS.getCode());
+        assertEquals(100, sent.size());
+    }
+
+    @Test
+    void publisherCancelledOnCancel() {
+        RecordingPublisher publisher = new RecordingPublisher(100);
+        StreamEmitter emitter = emitter(10);
+        emitter.start(publisher);
+        channel.runPendingTasks();
+        assertEquals(List.of(10), chunkSizes(drain()));
+
+        emitter.cancel();
+        assertTrue(publisher.cancelled);
+        emitter.addCredits(10);
+        channel.runPendingTasks();
+        assertEquals(List.of(10L), publisher.requests);
+        assertTrue(drain().isEmpty());
+    }
+
+    private StreamEmitter emitter(int credits) {
+        AkiMessage requestMessage = AkiMessage.builder()
+                .messageType(MessageTypeEnum.REQUEST.getCode())
+                .codec(SerializationTypeEnum.PROTO_STUFF.getCode())
+                .requestId(REQUEST_ID)
+                .build();
+        return new StreamEmitter(handler, ctx, serviceExecutors, invoker, requestMessage, credits, System.nanoTime());
+    }
+
+    private List<AkiMessage> drain() {
+        List<AkiMessage> messages = new ArrayList<>();
+        AkiMessage akiMessage;
+        while ((akiMessage = channel.readOutbound()) != null) {
+            assertEquals(REQUEST_ID, akiMessage.getRequestId());
+            messages.add(akiMessage);
+        }
+        return messages;
+    }
+
+    private List<Integer> chunkSizes(List<AkiMessage> messages) {
+        List<Integer> sizes = new ArrayList<>();
+        for (AkiMessage akiMessage : messages) {
+            if (akiMessage.getMessageType() == MessageTypeEnum.STREAM_CHUNK.getCode()) {
+                List<Object> items = ((AkiStreamChunk) akiMessage.getData()).getItems();
+                assertTrue(items.size() <= AkiRpcConstants.STREAM_CHUNK_SIZE);
+                sizes.add(items.size());
+                sent.addAll(items);
+            } else {
+                assertEquals(MessageTypeEnum.STREAM_END.getCode(), akiMessage.getMessageType());
+            }
+        }
+        return sizes;
+    }
+
+    private List<Object> firstItems(int n) {
+        return sent.subList(0, n);
+    }
+
+    private static void assertEnd(AkiMessage akiMessage, int code) {
+        assertEquals(MessageTypeEnum.STREAM_END.getCode(), akiMessage.getMessageType());
+        assertEquals(code, ((AkiResponse<?>) akiMessage.getData()).getCode());
+    }
+
+    interface Rows {
+        Iterator<Integer> rows();
+    }
+
+    /**
+     * 记录拉取数与关闭状态的数据源，failAt 大于等于0时在该位置抛出异常
+     */
+    private static final class CountingIterator implements Iterator<Integer>, AutoCloseable {
+        private final int size;
+        private final int failAt;
+        private int pulled;
+        private boolean closed;
+
+        private CountingIterator(int size, int failAt) {
+            this.size = size;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pulled < size;
+        }
+
+        @Override
+        public Integer next() {
+            if (pulled >= size) {
+                throw new NoSuchElementException();
+            }
+            if (pulled == failAt) {
+                throw new IllegalStateException("boom at " + pulled);
+            }
+            return pulled++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * 按 request(n) 同步推送元素的发布者，记录每次请求的数量；由测试显式结束
+     * （EmbeddedChannel 在 flush 中会执行排队的任务，同一次 request 中结束会与数据块的写出交错）
+     */
+    private static final class RecordingPublisher implements Flow.Publisher<Integer> {
+        private final int size;
+        private final List<Long> requests = new ArrayList<>();
+        private Flow.Subscriber<? super Integer> subscriber;
+        private int next;
+        private boolean cancelled;
+
+        private RecordingPublisher(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Integer> subscriber) {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    requests.add(n);
+                    for (long i = 0; i < n && next < size && !cancelled; i++) {
+                        subscriber.onNext(next++);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+
+        private void complete() {
+            subscriber.onComplete();
+        }
+    }
+}
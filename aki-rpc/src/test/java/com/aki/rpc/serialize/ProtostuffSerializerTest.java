@@ -0,0 +1,183 @@
+package com.aki.rpc.serialize;
+
+import com.aki.rpc.message.AkiRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Auther akizora
+ * ProtostuffSerializer：堆内 / 堆外连续 / 复合缓冲区三种反序列化分支，以及线程缓存 LinkedBuffer 伸缩与线程隔离
+ */
+class ProtostuffSerializerTest {
+
+    private final ProtostuffSerializer serializer = new ProtostuffSerializer();
+
+    @Test
+    void deserializeFromHeapBuffer() {
+        AkiRequest akiRequest = request(300);
+        ByteBuf heap = Unpooled.wrappedBuffer(serializer.serialize(akiRequest));
+        try {
+            assertTrue(heap.hasArray());
+            assertRequest(akiRequest, (AkiRequest) serializer.deserialize(heap, AkiRequest.class));
+            assertFalse(heap.isReadable());
+        } finally {
+            heap.release();
+        }
+    }
+
+    @Test
+    void deserializeFromHeapSliceWithOffset() {
+        AkiRequest akiRequest = request(300);
+        byte[] bytes = serializer.serialize(akiRequest);
+        ByteBuf heap = Unpooled.buffer(bytes.length + 16);
+        heap.writeZero(16).writeBytes(bytes);
+        try {
+            // arrayOffset + readerIndex 必须同时生效
+            ByteBuf slice = heap.slice(16, bytes.length);
+            assertRequest(akiRequest, (AkiRequest) serializer.deserialize(slice, AkiRequest.class));
+        } finally {
+            heap.release();
+        }
+    }
+
+    @Test
+    void deserializeFromDirectBuffer() {
+        AkiRequest akiRequest = request(300);
+        ByteBuf direct = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            serializer.serialize(akiRequest, direct);
+            assertFalse(direct.hasArray());
+            assertEquals(1, direct.nioBufferCount());
+            assertRequest(akiRequest, (AkiRequest) serializer.deserialize(direct, AkiRequest.class));
+            assertFalse(direct.isReadable());
+        } finally {
+            direct.release();
+        }
+    }
+
+    @Test
+    void deserializeFromCompositeBuffer() {
+        AkiRequest akiRequest = request(20 * 1024);
+        byte[] bytes = serializer.serialize(akiRequest);
+        CompositeByteBuf composite = Unpooled.compositeBuffer();
+        int step = bytes.length / 3;
+        composite.addComponent(true, Unpooled.wrappedBuffer(bytes, 0, step));
+        composite.addComponent(true, Unpooled.directBuffer(step).writeBytes(bytes, step, step));
+        composite.addComponent(true, Unpooled.wrappedBuffer(bytes, 2 * step, bytes.length - 2 * step));
+        try {
+            assertTrue(composite.nioBufferCount() > 1);
+            assertRequest(akiRequest, (AkiRequest) serializer.deserialize(composite, AkiRequest.class));
+            assertFalse(composite.isReadable());
+        } finally {
+            composite.release();
+        }
+    }
+
+    @Test
+    void serializeIntoByteBufMatchesByteArray() {
+        AkiRequest akiRequest = request(5000);
+        ByteBuf out = Unpooled.buffer();
+        try {
+            serializer.serialize(akiRequest, out);
+            byte[] written = new byte[out.readableBytes()];
+            out.getBytes(out.readerIndex(), written);
+            assertArrayEquals(serializer.serialize(akiRequest), written);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Test
+    void cachedBufferSurvivesGrowAndShrink() {
+        // 依次穿过：默认容量 -> 扩容 -> 超过上限 -> 连续小报文缩容，每一步两种序列化路径都须得到同样正确的结果
+        int[] sizes = new int[64];
+        sizes[0] = 100;
+        sizes[1] = 3000;
+        sizes[2] = 40 * 1024;
+        sizes[3] = 200 * 1024;
+        for (int i = 4; i < sizes.length; i++) {
+            sizes[i] = i % 20 == 0 ? 9000 : 50;
+        }
+        for (int size : sizes) {
+            AkiRequest akiRequest = request(size);
+            byte[] bytes = serializer.serialize(akiRequest);
+            assertRequest(akiRequest, (AkiRequest) serializer.deserialize(bytes, AkiRequest.class));
+
+            ByteBuf direct = PooledByteBufAllocator.DEFAULT.directBuffer();
+            try {
+                serializer.serialize(akiRequest, direct);
+                assertEquals(bytes.length, direct.readableBytes(), "size " + size);
+                assertRequest(akiRequest, (AkiRequest) serializer.deserialize(direct, AkiRequest.class));
+            } finally {
+                direct.release();
+            }
+        }
+    }
+
+    @Test
+    void cachedBufferIsPerThread() throws Exception {
+        // 共享的序列化器实例被多个线程并发使用时，各线程的 LinkedBuffer 互不干扰
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        AkiRequest akiRequest = request(((seed * 7919 + i * 104729) % 20000) + 1);
+                        ByteBuf buf = Unpooled.buffer();
+                        try {
+                            serializer.serialize(akiRequest, buf);
+                            assertRequest(akiRequest, (AkiRequest) serializer.deserialize(buf, AkiRequest.class));
+                        } finally {
+                            buf.release();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static AkiRequest request(int payloadSize) {
+        char[] chars = new char[payloadSize];
+        for (int i = 0; i < payloadSize; i++) {
+            chars[i] = (char) ('a' + i % 23);
+        }
+        return AkiRequest.builder()
+                .interfaceName("com.aki.rpc.GoodsService")
+                .methodName("findGoods")
+                .version("1.0")
+                .paramTypes(new Class<?>[]{String.class})
+                .parameters(new Object[]{new String(chars)})
+                .build();
+    }
+
+    static void assertRequest(AkiRequest expected, AkiRequest actual) {
+        assertEquals(expected.getInterfaceName(), actual.getInterfaceName());
+        assertEquals(expected.getMethodName(), actual.getMethodName());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertArrayEquals(expected.getParamTypes(), actual.getParamTypes());
+        assertArrayEquals(expected.getParameters(), actual.getParameters());
+    }
+}
@@ -0,0 +1,88 @@
+package com.aki.rpc.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Auther akizora
+ * 自适应并发限制：以合成耗时驱动窗口结算，检查上限随排队收缩并在耗时恢复后回升
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void limitShrinksUnderQueueingAndRecovers() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 10, 1000, clock::get);
+
+        // 1.耗时稳定且并发打满时，上限缓慢增长
+        runWindows(limiter, 20, FAST);
+        int baseline = limiter.getLimit();
+        assertTrue(baseline > 100, "基准上限: " + baseline);
+
+        // 2.排队使耗时升至 10 倍，上限按梯度收缩
+        int lowest = baseline;
+        for (int i = 0; i < 20; i++) {
+            runWindows(limiter, 1, SLOW);
+            lowest = Math.min(lowest, limiter.getLimit());
+        }
+        assertTrue(lowest < baseline / 2, "基准上限: " + baseline + "，拥塞时最低上限: " + lowest);
+
+        // 3.耗时恢复后上限回升到拥塞前的水平
+        runWindows(limiter, 200, FAST);
+        assertTrue(limiter.getLimit() >= baseline, "基准上限: " + baseline + "，恢复后上限: " + limiter.getLimit());
+    }
+
+    @Test
+    void limitDoesNotGrowWithoutLoad() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 10, 1000, clock::get);
+        for (int i = 0; i < 50; i++) {
+            // 每个窗口只有个位数并发，远低于上限的一半
+            for (int j = 0; j < 20; j++) {
+                assertTrue(limiter.tryAcquire());
+                limiter.onComplete(FAST);
+            }
+            clock.addAndGet(WINDOW);
+        }
+        assertEquals(100, limiter.getLimit());
+    }
+
+    @Test
+    void rejectsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, clock::get);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.onDropped();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInflight());
+    }
+
+    /**
+     * 每个窗口先占满当前上限，再以给定耗时全部完成
+     */
+    private void runWindows(AdaptiveConcurrencyLimiter limiter, int windows, long latencyNanos) {
+        for (int i = 0; i < windows; i++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int j = 1; j < acquired; j++) {
+                limiter.onComplete(latencyNanos);
+            }
+            // 最后一个请求完成时窗口到期，本窗口的全部样本一次结算
+            clock.addAndGet(WINDOW);
+            limiter.onComplete(latencyNanos);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.aki.rpc.utils;
+
+import com.aki.rpc.exception.AkiRpcException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Auther akizora
+ * 流式方法判定：只接受 Stream/Iterator/Flow.Publisher 本身，子类型在发布时被拒绝
+ */
+class StreamingUtilTest {
+
+    interface Rows {
+        Stream<String> stream();
+
+        Iterator<String> iterator();
+
+        Flow.Publisher<String> publisher();
+
+        List<String> list();
+
+        ListIterator<String> listIterator();
+
+        SubmissionPublisher<String> submissionPublisher();
+    }
+
+    @Test
+    void onlyDeclaredStreamingTypesAreStreaming() {
+        assertTrue(StreamingUtil.isStreaming(Stream.class));
+        assertTrue(StreamingUtil.isStreaming(Iterator.class));
+        assertTrue(StreamingUtil.isStreaming(Flow.Publisher.class));
+        assertFalse(StreamingUtil.isStreaming(List.class));
+        assertFalse(StreamingUtil.isStreaming(ListIterator.class));
+        assertFalse(StreamingUtil.isStreaming(SubmissionPublisher.class));
+    }
+
+    @Test
+    void rejectsStreamingSubtypesAtPublish() throws NoSuchMethodException {
+        for (String name : new String[]{"stream", "iterator", "publisher", "list"}) {
+            assertDoesNotThrow(() -> StreamingUtil.checkReturnType(Rows.class.getMethod(name)));
+        }
+        assertThrows(AkiRpcException.class, () -> StreamingUtil.checkReturnType(Rows.class.getMethod("listIterator")));
+        assertThrows(AkiRpcException.class, () -> StreamingUtil.checkReturnType(Rows.class.getMethod("submissionPublisher")));
+    }
+}